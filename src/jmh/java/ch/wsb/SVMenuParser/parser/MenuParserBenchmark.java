@@ -0,0 +1,40 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of the parser pipeline from loading the pdf bytes to the parsed menu week
+ * <p>
+ * The ocr layout requires the tessdata directory on the classpath just like the parser itself
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MenuParserBenchmark {
+    @Param({"TEXT_ONLY", "OCR_REQUIRED", "WITH_ICONS", "LARGE_GRID"})
+    public String layout;
+
+    private byte[] document;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        this.document = MenuCorpus.generate(MenuCorpus.Layout.valueOf(this.layout));
+    }
+
+    @Benchmark
+    public MenuWeek parse() throws Exception {
+        //release the page image so the next parse can reuse it from the raster pool
+        try (MenuParser parser = new MenuParser(new MenuFetcher(PDDocument.load(this.document)))) {
+            return parser.getMenuWeek();
+        }
+    }
+}
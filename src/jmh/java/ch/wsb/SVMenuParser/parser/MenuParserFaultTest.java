@@ -0,0 +1,147 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.menu.Menu;
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import ch.wsb.SVMenuParser.metrics.ParserMetrics;
+import ch.wsb.SVMenuParser.metrics.SimpleParserMetrics;
+import ch.wsb.SVMenuParser.ocr.GlyphMappings;
+import ch.wsb.SVMenuParser.ocr.GrayRaster;
+import ch.wsb.SVMenuParser.ocr.OcrCache;
+import net.sourceforge.tess4j.Word;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.awt.*;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fault injection test of the ocr path which makes single steps of a parse fail while the other cells are running
+ * <p>
+ * Usage: MenuParserFaultTest
+ * <p>
+ * The test exits with status 1 if a scenario didn't behave as expected. It requires the tessdata directory on the
+ * classpath just like the parser itself.
+ */
+
+public class MenuParserFaultTest {
+    public static final long SLOW_CELL_MILLIS = 500;
+
+    public static void main(String[] args) throws Exception {
+        byte[] document = MenuCorpus.generate(MenuCorpus.Layout.OCR_REQUIRED);
+        OcrCache cache = OcrCache.getInstance();
+        GlyphMappings glyphMappings = GlyphMappings.getInstance();
+        //disable the caches so every cell runs the ocr
+        OcrCache.setInstance(null);
+        GlyphMappings.setInstance(null);
+
+        List<String> violations = new ArrayList<>();
+        try {
+            failingCell(document, violations);
+            failingTitleBatch(document, violations);
+        } finally {
+            OcrCache.setInstance(cache);
+            GlyphMappings.setInstance(glyphMappings);
+        }
+
+        if (violations.isEmpty()) System.out.println("All fault scenarios passed");
+        else violations.forEach(violation -> System.out.println("FAILED " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Let the first cell fail right away while the other cells are still running and check that the parse only
+     * fails after all of them finished
+     *
+     * @param document   bytes of the document
+     * @param violations list of the violations
+     * @throws IOException exception thrown if the document can't be loaded
+     */
+
+    private static void failingCell(byte[] document, List<String> violations) throws IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        try (PDDocument pdf = PDDocument.load(document)) {
+            MenuParser parser = new MenuParser(new MenuFetcher(pdf).getImage(), pdf) {
+                @Override
+                String[] ocrMenu(Rectangle boundingBox, Rectangle titleBounds, List<List<TextPosition>> titleGlyphs, GrayRaster titleRaster, String cacheKey, TitleBatch batch) throws IOException, URISyntaxException, InterruptedException {
+                    if (this.getMenuBounds().indexOf(boundingBox) == 0) throw new IOException("Injected cell failure");
+                    running.incrementAndGet();
+                    try {
+                        Thread.sleep(SLOW_CELL_MILLIS);
+                        return super.ocrMenu(boundingBox, titleBounds, titleGlyphs, titleRaster, cacheKey, batch);
+                    } finally {
+                        running.decrementAndGet();
+                        finished.incrementAndGet();
+                    }
+                }
+            };
+            parser.getLines();
+            parser.calculateMenuBounds();
+            int cells = parser.getMenuBounds().size();
+
+            try {
+                parser.ocrMenus();
+                violations.add("failing cell: parse succeeded although a cell failed");
+            } catch (ExecutionException e) {
+                if (!"Injected cell failure".equals(e.getCause().getMessage())) violations.add("failing cell: unexpected failure " + e.getCause());
+            } catch (Exception e) {
+                violations.add("failing cell: unexpected failure " + e);
+            }
+
+            System.out.printf("failing cell: cells=%d finished=%d running=%d%n", cells, finished.get(), running.get());
+            if (running.get() != 0) violations.add("failing cell: " + running.get() + " cells were still running when the parse failed");
+            if (finished.get() != cells - 1) violations.add("failing cell: only " + finished.get() + " of " + (cells - 1) + " other cells finished");
+        }
+    }
+
+    /**
+     * Let the recognition of the stitched titles fail and check that every cell still recognizes its title on its own
+     *
+     * @param document   bytes of the document
+     * @param violations list of the violations
+     * @throws IOException exception thrown if the document can't be loaded
+     */
+
+    private static void failingTitleBatch(byte[] document, List<String> violations) throws IOException {
+        ParserMetrics registry = Metrics.getRegistry();
+        SimpleParserMetrics metrics = new SimpleParserMetrics();
+        Metrics.setRegistry(metrics);
+        boolean batch = MenuParser.isTitleBatchOcr();
+        MenuParser.setTitleBatchOcr(true);
+        try (PDDocument pdf = PDDocument.load(document)) {
+            MenuParser parser = new MenuParser(new MenuFetcher(pdf).getImage(), pdf) {
+                @Override
+                List<Word> recognizeTitleBatch(GrayRaster raster) {
+                    throw new IllegalStateException("Injected title batch failure");
+                }
+            };
+            parser.getLines();
+            parser.calculateMenuBounds();
+
+            try {
+                parser.ocrMenus();
+            } catch (Exception e) {
+                violations.add("failing title batch: parse failed with " + e);
+                return;
+            }
+
+            int missing = 0;
+            for (Menu menu : parser.getMenus()) if (menu.getTitle() == null || menu.getTitle().isBlank()) missing++;
+            long fallbacks = metrics.getCount(ParserCounter.TITLE_BATCH_FALLBACK);
+            System.out.printf("failing title batch: menus=%d missingTitles=%d fallbacks=%d%n", parser.getMenus().size(), missing, fallbacks);
+            if (parser.getMenus().isEmpty()) violations.add("failing title batch: no menus were parsed");
+            if (missing > 0) violations.add("failing title batch: " + missing + " menus have no title");
+            if (fallbacks != 1) violations.add("failing title batch: expected one fallback but counted " + fallbacks);
+        } finally {
+            Metrics.setRegistry(registry);
+            MenuParser.setTitleBatchOcr(batch);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.governor.ParseGovernor;
+import ch.wsb.SVMenuParser.menu.Menu;
+import ch.wsb.SVMenuParser.ocr.TrackedTesseract;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Soak test running many concurrent parses of generated documents while watching for resource leaks
+ * <p>
+ * Usage: MenuParserSoakTest [threads] [seconds] [warmUpSeconds]
+ * <p>
+ * A baseline of the heap, native memory, threads, file descriptors and tesseract handles is taken once the warm-up load
+ * stopped and compared with the state after the measured load stopped, so both are taken while the parser is idle.
+ * The test exits with status 1 if any of them grew beyond its threshold or a parse is still admitted by the
+ * {@link ParseGovernor}. The thresholds can be changed with the system properties soak.maxHeapGrowthMB,
+ * soak.maxNativeGrowthMB, soak.maxThreadGrowth and soak.maxFileGrowth. Native memory is only checked if the jvm runs
+ * with -XX:NativeMemoryTracking=summary.
+ */
+
+public class MenuParserSoakTest {
+    public static final long MAX_HEAP_GROWTH_MB = Long.getLong("soak.maxHeapGrowthMB", 64);
+    public static final long MAX_NATIVE_GROWTH_MB = Long.getLong("soak.maxNativeGrowthMB", 64);
+    public static final long MAX_THREAD_GROWTH = Long.getLong("soak.maxThreadGrowth", 4);
+    public static final long MAX_FILE_GROWTH = Long.getLong("soak.maxFileGrowth", 8);
+    public static final long SAMPLE_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Pattern NMT_COMMITTED_PATTERN = Pattern.compile("Total: reserved=\\d+KB, committed=(\\d+)KB");
+    private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
+    private static final OperatingSystemMXBean OS_BEAN = ManagementFactory.getOperatingSystemMXBean();
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final AtomicLong parses = new AtomicLong();
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong expectedFailures = new AtomicLong();
+    private static final AtomicLong unclosedDocuments = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int warmUpSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        Map<MenuCorpus.Layout, byte[]> documents = new EnumMap<>(MenuCorpus.Layout.class);
+        for (MenuCorpus.Layout layout : MenuCorpus.Layout.values()) documents.put(layout, MenuCorpus.generate(layout));
+        byte[] blank = createBlankDocument();
+
+        //fill the font, icon and raster caches before the baseline so they don't count as growth
+        runLoad(threads, warmUpSeconds, documents, blank);
+        Sample baseline = Sample.take(true);
+        System.out.println("baseline " + baseline);
+
+        runLoad(threads, seconds, documents, blank);
+        Sample result = Sample.take(true);
+        System.out.println("result   " + result);
+        System.out.printf("parses=%d failures=%d expectedFailures=%d unclosedDocuments=%d tesseractInits=%d%n", parses.get(), failures.get(), expectedFailures.get(), unclosedDocuments.get(), TrackedTesseract.getInitializedHandles());
+
+        List<String> violations = new ArrayList<>();
+        check(violations, "heap", (result.heapBytes - baseline.heapBytes) >> 20, MAX_HEAP_GROWTH_MB, "MB");
+        if (baseline.nativeBytes >= 0 && result.nativeBytes >= 0) {
+            check(violations, "native memory", (result.nativeBytes - baseline.nativeBytes) >> 20, MAX_NATIVE_GROWTH_MB, "MB");
+        }
+        check(violations, "threads", result.threads - baseline.threads, MAX_THREAD_GROWTH, "");
+        if (baseline.files >= 0 && result.files >= 0) check(violations, "file descriptors", result.files - baseline.files, MAX_FILE_GROWTH, "");
+        check(violations, "open tesseract handles", result.tesseractHandles, 0, "");
+        check(violations, "unclosed documents", unclosedDocuments.get(), 0, "");
+        ParseGovernor governor = ParseGovernor.getInstance();
+        if (governor != null) check(violations, "admitted parses", governor.getActiveParses(), 0, "");
+        check(violations, "unexpected failures", failures.get(), 0, "");
+
+        if (violations.isEmpty()) System.out.println("No resource growth detected");
+        else violations.forEach(violation -> System.out.println("LEAK " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Run concurrent parses for a given duration and wait until all workers stopped
+     *
+     * @param threads   amount of concurrent workers
+     * @param seconds   duration of the load
+     * @param documents generated documents of all layouts
+     * @param blank     document without a menu table
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for the workers
+     */
+
+    private static void runLoad(int threads, int seconds, Map<MenuCorpus.Layout, byte[]> documents, byte[] blank) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.execute(() -> {
+                Random random = new Random(worker);
+                ParseSnapshot snapshot = null;
+                while (System.nanoTime() < deadline) {
+                    try {
+                        snapshot = parse(random, documents, blank, snapshot);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        System.err.println("Unexpected parse failure: " + e);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        while (!workers.awaitTermination(SAMPLE_INTERVAL, TimeUnit.MILLISECONDS)) {
+            System.out.println("sample   " + Sample.take(false) + " parses=" + parses.get() + " failures=" + failures.get());
+        }
+    }
+
+    /**
+     * Run one parse with a random document and parser entry point
+     * <p>
+     * Every tenth parse uses a document without a menu table to exercise the failure paths. Some parsers are never
+     * closed like in code written before the parser became closeable. After every parse the document has to be
+     * closed, no matter whether the parse succeeded.
+     *
+     * @param random    random source of the worker
+     * @param documents generated documents of all layouts
+     * @param blank     document without a menu table
+     * @param snapshot  snapshot of the previous incremental parse of the worker (null for the first one)
+     * @return snapshot to be used by the next incremental parse
+     * @throws Exception exception thrown if a valid document couldn't be parsed
+     */
+
+    private static ParseSnapshot parse(Random random, Map<MenuCorpus.Layout, byte[]> documents, byte[] blank, ParseSnapshot snapshot) throws Exception {
+        parses.incrementAndGet();
+        if (random.nextInt(10) == 0) {
+            PDDocument document = PDDocument.load(blank);
+            try (MenuParser ignored = new MenuParser(new MenuFetcher(document))) {
+                return snapshot;
+            } catch (Exception e) {
+                expectedFailures.incrementAndGet();
+                return snapshot;
+            } finally {
+                if (!document.getDocument().isClosed()) unclosedDocuments.incrementAndGet();
+            }
+        }
+
+        MenuCorpus.Layout[] layouts = MenuCorpus.Layout.values();
+        PDDocument document = PDDocument.load(documents.get(layouts[random.nextInt(layouts.length)]));
+        try {
+            int entryPoint = random.nextInt(5);
+            if (entryPoint == 0) {
+                try (MenuParser ignored = new MenuParser(new MenuFetcher(document))) {
+                    return snapshot;
+                }
+            } else if (entryPoint == 1) {
+                try (MenuParser parser = new MenuParser(new MenuFetcher(document), snapshot)) {
+                    return parser.getSnapshot();
+                }
+            } else if (entryPoint == 2) {
+                //the parser is never closed so its page image and its governor permit are only reclaimed by the garbage collector
+                new MenuParser(new MenuFetcher(document)).getMenuWeek();
+                return snapshot;
+            } else if (entryPoint == 3) {
+                return new MenuParser(new MenuFetcher(document), snapshot).getSnapshot();
+            } else {
+                MenuStream stream = MenuParser.stream(new MenuFetcher(document), MenuStream.DEFAULT_BUFFER_SIZE);
+                stream.subscribe(new Flow.Subscriber<>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(Menu item) {
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                    }
+                });
+                stream.getMenuWeek().get(1, TimeUnit.MINUTES);
+                return snapshot;
+            }
+        } finally {
+            if (!document.getDocument().isClosed()) unclosedDocuments.incrementAndGet();
+        }
+    }
+
+    /**
+     * Add a violation if a measured growth exceeds its threshold
+     *
+     * @param violations list of the violations
+     * @param name       name of the measured resource
+     * @param growth     measured growth
+     * @param threshold  maximum allowed growth
+     * @param unit       unit of the growth
+     */
+
+    private static void check(List<String> violations, String name, long growth, long threshold, String unit) {
+        System.out.printf("%s grew by %d%s (threshold %d%s)%n", name, growth, unit, threshold, unit);
+        if (growth > threshold) violations.add(String.format("%s grew by %d%s which exceeds %d%s", name, growth, unit, threshold, unit));
+    }
+
+    /**
+     * Create a document with an empty page which the parser can't find a menu table in
+     *
+     * @return bytes of the document
+     * @throws IOException exception thrown when the document can't be written
+     */
+
+    private static byte[] createBlankDocument() throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
+            document.addPage(new PDPage());
+            document.save(stream);
+            return stream.toByteArray();
+        }
+    }
+
+    private static class Sample {
+        private final long heapBytes;
+        private final long nativeBytes;
+        private final int threads;
+        private final long files;
+        private final long tesseractHandles;
+
+        private Sample(long heapBytes, long nativeBytes, int threads, long files, long tesseractHandles) {
+            this.heapBytes = heapBytes;
+            this.nativeBytes = nativeBytes;
+            this.threads = threads;
+            this.files = files;
+            this.tesseractHandles = tesseractHandles;
+        }
+
+        /**
+         * Measure the current resource usage of the jvm
+         *
+         * @param settle whether garbage should be collected first so the heap usage only contains reachable objects
+         * @return measured sample
+         * @throws InterruptedException exception thrown if the thread gets interrupted while settling
+         */
+
+        private static Sample take(boolean settle) throws InterruptedException {
+            if (settle) {
+                for (int i = 0; i < 3; i++) {
+                    System.gc();
+                    Thread.sleep(200);
+                }
+            }
+            return new Sample(MEMORY_BEAN.getHeapMemoryUsage().getUsed(), getNativeCommitted(), THREAD_BEAN.getThreadCount(), getOpenFiles(), TrackedTesseract.getOpenHandles());
+        }
+
+        /**
+         * Get the committed native memory reported by the native memory tracking
+         *
+         * @return committed bytes (-1 if native memory tracking is disabled)
+         */
+
+        private static long getNativeCommitted() {
+            try {
+                Object output = ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "vmNativeMemory", new Object[]{new String[]{"summary"}}, new String[]{String[].class.getName()});
+                Matcher matcher = NMT_COMMITTED_PATTERN.matcher(String.valueOf(output));
+                return matcher.find() ? Long.parseLong(matcher.group(1)) * 1024 : -1;
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Get the amount of file descriptors opened by the process
+         *
+         * @return open file descriptors (-1 if the platform doesn't expose them)
+         */
+
+        private static long getOpenFiles() {
+            if (OS_BEAN instanceof com.sun.management.UnixOperatingSystemMXBean bean) return bean.getOpenFileDescriptorCount();
+            String[] descriptors = new File("/proc/self/fd").list();
+            return descriptors != null ? descriptors.length : -1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("heap=%dMB native=%dMB threads=%d files=%d tesseract=%d", this.heapBytes >> 20, this.nativeBytes < 0 ? -1 : this.nativeBytes >> 20, this.threads, this.files, this.tesseractHandles);
+        }
+    }
+}
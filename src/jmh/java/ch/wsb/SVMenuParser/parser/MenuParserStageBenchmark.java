@@ -0,0 +1,163 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.menu.MenuLabel;
+import ch.wsb.SVMenuParser.ocr.GlyphMappings;
+import ch.wsb.SVMenuParser.ocr.OcrCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the single parser stages on an already loaded and rendered document
+ * <p>
+ * Every stage resets the state it produces, so a stage can be invoked repeatedly on the same parser
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MenuParserStageBenchmark {
+
+    @State(Scope.Thread)
+    public static class TextState {
+        @Param({"TEXT_ONLY", "WITH_ICONS", "LARGE_GRID"})
+        public String layout;
+
+        PDDocument document;
+        MenuParser parser;
+        Rectangle firstMenu;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            this.document = PDDocument.load(MenuCorpus.generate(MenuCorpus.Layout.valueOf(this.layout)));
+            this.parser = new MenuParser(new MenuFetcher(this.document).getImage(), this.document);
+            this.parser.getLines();
+            this.parser.calculateMenuBounds();
+            if (!this.parser.readWeekDate()) throw new IllegalStateException("Layout " + this.layout + " requires ocr");
+            this.firstMenu = this.parser.getMenuBounds().get(0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.document.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OcrState {
+        @Param({"true", "false"})
+        public boolean batch;
+
+        PDDocument document;
+        MenuParser parser;
+        OcrCache cache;
+        GlyphMappings glyphMappings;
+        boolean previousBatch;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            //disable the caches so every invocation runs tesseract on all titles
+            this.cache = OcrCache.getInstance();
+            this.glyphMappings = GlyphMappings.getInstance();
+            this.previousBatch = MenuParser.isTitleBatchOcr();
+            OcrCache.setInstance(null);
+            GlyphMappings.setInstance(null);
+            MenuParser.setTitleBatchOcr(this.batch);
+            this.document = PDDocument.load(MenuCorpus.generate(MenuCorpus.Layout.OCR_REQUIRED));
+            this.parser = new MenuParser(new MenuFetcher(this.document).getImage(), this.document);
+            this.parser.getLines();
+            this.parser.calculateMenuBounds();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            this.document.close();
+            OcrCache.setInstance(this.cache);
+            GlyphMappings.setInstance(this.glyphMappings);
+            MenuParser.setTitleBatchOcr(this.previousBatch);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class IconState {
+        MenuParser parser;
+        BufferedImage vegan;
+        BufferedImage vegetarian;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            this.parser = new MenuParser((BufferedImage) null, null);
+            this.vegan = readIcon(MenuLabel.VEGAN);
+            this.vegetarian = readIcon(MenuLabel.VEGETARIAN);
+        }
+
+        private static BufferedImage readIcon(MenuLabel label) throws IOException {
+            try (InputStream stream = Objects.requireNonNull(IconState.class.getClassLoader().getResourceAsStream("icons/" + label + ".png"))) {
+                return ImageIO.read(stream);
+            }
+        }
+    }
+
+    @Benchmark
+    public BufferedImage render(TextState state) throws IOException {
+        return new MenuFetcher(state.document).getImage();
+    }
+
+    @Benchmark
+    public List<Rectangle> strokeParse(TextState state) throws IOException {
+        return new PDFStrokeParser(state.document.getPage(0)).getRectangles();
+    }
+
+    @Benchmark
+    public List<Rectangle> getLines(TextState state) throws IOException {
+        state.parser.getLines();
+        return state.parser.getMenuBounds();
+    }
+
+    @Benchmark
+    public List<Rectangle> calculateMenuBounds(TextState state) {
+        state.parser.calculateMenuBounds();
+        return state.parser.getMenuBounds();
+    }
+
+    @Benchmark
+    public boolean readWeekDate(TextState state) throws Exception {
+        return state.parser.readWeekDate();
+    }
+
+    @Benchmark
+    public int readMenus(TextState state) throws IOException {
+        state.parser.readMenus();
+        return state.parser.getMenus().size();
+    }
+
+    @Benchmark
+    public MenuLabel getMenuLabel(TextState state) throws IOException {
+        return state.parser.getMenuLabel(state.firstMenu);
+    }
+
+    @Benchmark
+    public double getSimilarity(IconState state) {
+        return state.parser.getSimilarity(state.vegan, state.vegetarian);
+    }
+
+    //compares stitched batch ocr of all titles against one tesseract call per cell through the batch parameter
+    @Benchmark
+    @Warmup(iterations = 1, time = 10)
+    @Measurement(iterations = 3, time = 10)
+    public int ocrMenus(OcrState state) throws Exception {
+        state.parser.ocrMenus();
+        return state.parser.getMenus().size();
+    }
+}
@@ -0,0 +1,108 @@
+package ch.wsb.SVMenuParser.server;
+
+import ch.wsb.SVMenuParser.menu.Menu;
+import ch.wsb.SVMenuParser.menu.MenuLabel;
+import ch.wsb.SVMenuParser.menu.MenuPrice;
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the menu server running entirely on localhost
+ * <p>
+ * Usage: MenuServerLoadTest [clients] [seconds] [restaurants]
+ */
+
+public class MenuServerLoadTest {
+    private static final String[] QUERIES = {"", "?day=2", "?day=3&group=1", "?label=vegan", "?group=0&label=vegetarian"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int restaurants = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        MenuServer server = new MenuServer(new InetSocketAddress("localhost", 0), MenuServer.DEFAULT_THREADS);
+        for (int i = 0; i < restaurants; i++) server.publish("restaurant-" + i, createMenuWeek(i));
+        server.start();
+
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(clients)).build();
+        String base = "http://localhost:" + server.getPort() + MenuServer.MENUS_PATH;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong ok = new AtomicLong();
+        AtomicLong notModified = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            workers.execute(() -> {
+                Random random = new Random();
+                Map<String, String> etags = new HashMap<>();
+                long[] samples = new long[1 << 16];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    String uri = base + "restaurant-" + random.nextInt(restaurants) + QUERIES[random.nextInt(QUERIES.length)];
+                    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri)).header("Accept-Encoding", "gzip");
+                    //revalidate half of the known responses like a browser cache would
+                    String etag = etags.get(uri);
+                    if (etag != null && random.nextBoolean()) request.header("If-None-Match", etag);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                        if (count < samples.length) samples[count++] = System.nanoTime() - start;
+                        if (response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                            response.headers().firstValue("ETag").ifPresent(value -> etags.put(uri, value));
+                        } else if (response.statusCode() == 304) notModified.incrementAndGet();
+                        else errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                latencies.add(Arrays.copyOf(samples, count));
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        long total = ok.get() + notModified.get() + errors.get();
+        System.out.printf("requests=%d (%.0f/s) ok=%d notModified=%d errors=%d%n", total, total / (double) seconds, ok.get(), notModified.get(), errors.get());
+        if (all.length > 0) {
+            System.out.printf("latency p50=%.2fms p99=%.2fms max=%.2fms%n", all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6, all[all.length - 1] / 1e6);
+        }
+        System.out.printf("server requests=%d notModified=%d encodes=%d%n", server.getRequests(), server.getNotModified(), server.getEncodes());
+        server.stop(0);
+        System.exit(0);
+    }
+
+    /**
+     * Create a synthetic menu week with five days and three menu groups
+     *
+     * @param seed seed of the menu texts
+     * @return menu week
+     */
+
+    private static MenuWeek createMenuWeek(int seed) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        List<Menu> menus = new ArrayList<>();
+        for (int group = 0; group < 3; group++) {
+            for (int day = 0; day < 5; day++) {
+                Calendar date = (Calendar) calendar.clone();
+                date.add(Calendar.DAY_OF_MONTH, day);
+                MenuLabel label = MenuLabel.values()[(seed + group + day) % MenuLabel.values().length];
+                List<MenuPrice> prices = List.of(new MenuPrice("INT", "7.50"), new MenuPrice("EXT", "10.50"));
+                menus.add(new Menu("Menu " + seed + "-" + group + "-" + day, prices, "Description of menu " + group + " on day " + day, date.getTime(), group, label));
+            }
+        }
+        return new MenuWeek(menus);
+    }
+}
@@ -0,0 +1,119 @@
+package ch.wsb.SVMenuParser;
+
+import ch.wsb.SVMenuParser.ocr.Tessdata;
+import ch.wsb.SVMenuParser.parser.MenuParser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+public class SVMenuParser {
+    public static final int DEFAULT_WARM_UP_ITERATIONS = 3;
+
+    private static volatile WarmUpReport report;
+
+    /**
+     * Initialize everything the first parse would otherwise initialize lazily with the default amount of sample parses
+     *
+     * @return report of the warm-up
+     */
+
+    public static WarmUpReport warmUp() {
+        return warmUp(DEFAULT_WARM_UP_ITERATIONS);
+    }
+
+    /**
+     * Initialize everything the first parse would otherwise initialize lazily
+     * <p>
+     * Builds the pdfbox font cache, extracts the tessdata, decodes the label icons and parses an embedded
+     * sample document with and without ocr so the hot methods get compiled. The sample parses are recorded
+     * in the metrics like every other parse.
+     *
+     * @param iterations amount of parses of each sample document
+     * @return report of the warm-up
+     */
+
+    public static synchronized WarmUpReport warmUp(int iterations) {
+        log.info("Started warm-up");
+        long start = System.nanoTime();
+        WarmUpReport warmUpReport = new WarmUpReport();
+
+        runStep(warmUpReport, WarmUpStep.FONT_CACHE, () -> FontMappers.instance().getTrueTypeFont("Helvetica", null));
+        runStep(warmUpReport, WarmUpStep.TESSDATA, Tessdata::getDirectory);
+        runStep(warmUpReport, WarmUpStep.ICONS, MenuParser::loadIcons);
+        runStep(warmUpReport, WarmUpStep.TEXT_PARSE, () -> MenuParser.parseSample(false, iterations));
+        runStep(warmUpReport, WarmUpStep.OCR_PARSE, () -> MenuParser.parseSample(true, iterations));
+
+        warmUpReport.finish(System.nanoTime() - start);
+        report = warmUpReport;
+        log.info("Finished warm-up: {}", warmUpReport);
+        return warmUpReport;
+    }
+
+    /**
+     * Run the warm-up in a background thread
+     *
+     * @return future completed with the report of the warm-up (completed exceptionally if the warm-up itself failed)
+     */
+
+    public static CompletableFuture<WarmUpReport> warmUpAsync() {
+        CompletableFuture<WarmUpReport> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(warmUp());
+            } catch (Throwable t) {
+                log.error("Warm-up failed", t);
+                future.completeExceptionally(t);
+            }
+        }, "SVMenuParser-WarmUp");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * Check whether a warm-up finished successfully (e.g. for a readiness probe)
+     *
+     * @return whether the parser is warmed up
+     */
+
+    public static boolean isReady() {
+        WarmUpReport warmUpReport = report;
+        return warmUpReport != null && warmUpReport.isReady();
+    }
+
+    /**
+     * Get the report of the last warm-up
+     *
+     * @return last warm-up report (null if no warm-up finished yet)
+     */
+
+    public static WarmUpReport getWarmUpReport() {
+        return report;
+    }
+
+    /**
+     * Internal method to run a warm-up step and add its result to the report
+     *
+     * @param warmUpReport report of the warm-up
+     * @param step         executed step
+     * @param action       action of the step
+     */
+
+    private static void runStep(WarmUpReport warmUpReport, WarmUpStep step, Step action) {
+        long start = System.nanoTime();
+        Exception failure = null;
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("Warm-up step {} failed", step, e);
+            failure = e;
+        }
+        warmUpReport.addStep(step, System.nanoTime() - start, failure);
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,80 @@
+package ch.wsb.SVMenuParser;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class WarmUpReport {
+    private final Map<WarmUpStep, Long> durations = new EnumMap<>(WarmUpStep.class);
+    private final Map<WarmUpStep, Exception> failures = new EnumMap<>(WarmUpStep.class);
+
+    @Getter
+    private long durationNanos;
+
+    /**
+     * Add a finished step to the report
+     *
+     * @param step          executed step
+     * @param durationNanos duration of the step in nanoseconds
+     * @param failure       exception thrown by the step (null if the step succeeded)
+     */
+
+    void addStep(WarmUpStep step, long durationNanos, Exception failure) {
+        this.durations.put(step, durationNanos);
+        if (failure != null) this.failures.put(step, failure);
+    }
+
+    /**
+     * Mark the warm-up as finished
+     *
+     * @param durationNanos duration of the whole warm-up in nanoseconds
+     */
+
+    void finish(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Check whether all steps succeeded
+     *
+     * @return whether the parser is ready to serve requests with a low latency
+     */
+
+    public boolean isReady() {
+        return this.failures.isEmpty() && this.durations.size() == WarmUpStep.values().length;
+    }
+
+    /**
+     * Get the durations of the executed steps
+     *
+     * @return map with the duration of every step in nanoseconds
+     */
+
+    public Map<WarmUpStep, Long> getDurations() {
+        return Collections.unmodifiableMap(this.durations);
+    }
+
+    /**
+     * Get the exceptions of the failed steps
+     *
+     * @return map with the exception of every failed step
+     */
+
+    public Map<WarmUpStep, Exception> getFailures() {
+        return Collections.unmodifiableMap(this.failures);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("ready=%s duration=%dms%n", this.isReady(), TimeUnit.NANOSECONDS.toMillis(this.durationNanos)));
+        for (Map.Entry<WarmUpStep, Long> step : this.durations.entrySet()) {
+            Exception failure = this.failures.get(step.getKey());
+            builder.append(String.format("  %s %dms%s%n", step.getKey(), TimeUnit.NANOSECONDS.toMillis(step.getValue()), failure != null ? " failed: " + failure : ""));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package ch.wsb.SVMenuParser;
+
+public enum WarmUpStep {
+    FONT_CACHE("font_cache"),
+    TESSDATA("tessdata"),
+    ICONS("icons"),
+    TEXT_PARSE("text_parse"),
+    OCR_PARSE("ocr_parse");
+
+    private final String name;
+
+    WarmUpStep(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Name of the warm-up step
+     *
+     * @return string name
+     */
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.wsb.SVMenuParser.diagnostics;
+
+import lombok.Getter;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+public class DiagnosticArtifact {
+    @Getter
+    private final File directory;
+
+    @Getter
+    private final String kind;
+
+    @Getter
+    private final BufferedImage image;
+
+    @Getter
+    private final Rectangle region;
+
+    @Getter
+    private final List<Rectangle> highlights;
+
+    @Getter
+    private final Map<String, Object> metadata;
+
+    @Getter
+    private final long timestamp = System.currentTimeMillis();
+
+    /**
+     * Create a new DiagnosticArtifact instance
+     *
+     * @param directory  directory in which the artifact should be saved
+     * @param kind       kind of the artifact which is used as file name prefix
+     * @param image      cropped image of the region of interest (has to be a copy which isn't modified afterwards)
+     * @param region     position of the cropped image on the rendered page
+     * @param highlights rectangles relative to the cropped image which should be highlighted
+     * @param metadata   additional information written to the json sidecar
+     */
+
+    public DiagnosticArtifact(File directory, String kind, BufferedImage image, Rectangle region, List<Rectangle> highlights, Map<String, Object> metadata) {
+        this.directory = directory;
+        this.kind = kind;
+        this.image = image;
+        this.region = region;
+        this.highlights = highlights;
+        this.metadata = metadata;
+    }
+}
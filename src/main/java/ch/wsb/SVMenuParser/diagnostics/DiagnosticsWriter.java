@@ -0,0 +1,356 @@
+package ch.wsb.SVMenuParser.diagnostics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class DiagnosticsWriter {
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+    public static final int DEFAULT_MAX_PER_MINUTE = 10;
+    public static final long DEDUPE_WINDOW = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEDUPE_CAPACITY = 256;
+    public static final int BORDER_WIDTH = 3;
+    public static final Color HIGHLIGHT_COLOR = new Color(0x21F6F6);
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile DiagnosticsWriter instance;
+
+    private final BlockingQueue<DiagnosticArtifact> queue;
+    private final int maxPerMinute;
+    private final Thread thread;
+    private final Map<Long, Long> recent = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return this.size() > DEDUPE_CAPACITY;
+        }
+    };
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    private long windowStart;
+    private int windowCount;
+    private volatile boolean closed;
+
+    /**
+     * Create a new DiagnosticsWriter instance with a started background thread
+     *
+     * @param queueSize    maximum amount of artifacts waiting to be written
+     * @param maxPerMinute maximum amount of artifacts accepted per minute
+     */
+
+    public DiagnosticsWriter(int queueSize, int maxPerMinute) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxPerMinute = maxPerMinute;
+        this.thread = new Thread(this::run, "DiagnosticsWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Get the writer used by all parsers
+     *
+     * @return shared writer instance
+     */
+
+    public static DiagnosticsWriter getInstance() {
+        DiagnosticsWriter writer = instance;
+        if (writer == null) {
+            synchronized (DiagnosticsWriter.class) {
+                if (instance == null) instance = new DiagnosticsWriter(DEFAULT_QUEUE_SIZE, DEFAULT_MAX_PER_MINUTE);
+                writer = instance;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Replace the writer used by all parsers
+     * <p>
+     * The previous writer stops accepting artifacts and its thread exits after the queued ones are written
+     *
+     * @param writer new shared writer instance
+     */
+
+    public static synchronized void setInstance(DiagnosticsWriter writer) {
+        DiagnosticsWriter previous = instance;
+        instance = Objects.requireNonNull(writer);
+        if (previous != null && previous != writer) previous.shutdown();
+    }
+
+    /**
+     * Queue an artifact to be written in the background without blocking
+     *
+     * @param artifact artifact to be written
+     * @return whether the artifact was accepted
+     */
+
+    public boolean submit(DiagnosticArtifact artifact) {
+        BufferedImage image = artifact.getImage();
+        if (!this.accept(artifact.getKind(), hash(artifact.getKind(), image, new Rectangle(0, 0, image.getWidth(), image.getHeight())))) return false;
+        return this.enqueue(artifact);
+    }
+
+    /**
+     * Queue a region of an image to be written in the background without blocking
+     * <p>
+     * The region only gets copied if the artifact passes the deduplication, the rate limit and the queue capacity,
+     * so rejected artifacts don't cost a copy on the calling thread.
+     *
+     * @param directory  directory in which the artifact should be saved
+     * @param kind       kind of the artifact which is used as file name prefix
+     * @param source     image the region gets copied from
+     * @param crop       region of the source image which gets copied (gets clipped to the image bounds)
+     * @param region     position of the artifact on the rendered page
+     * @param highlights rectangles relative to the copied region which should be highlighted
+     * @param metadata   additional information written to the json sidecar
+     * @return whether the artifact was accepted
+     */
+
+    public boolean submit(File directory, String kind, BufferedImage source, Rectangle crop, Rectangle region, List<Rectangle> highlights, Map<String, Object> metadata) {
+        if (!this.accept(kind, hash(kind, source, clip(source, crop)))) return false;
+        return this.enqueue(new DiagnosticArtifact(directory, kind, copyRegion(source, crop), region, highlights, metadata));
+    }
+
+    /**
+     * Copy a region of an image so it can be written after the source image was reused
+     *
+     * @param image  source image
+     * @param region region to be copied (gets clipped to the image bounds)
+     * @return copy of the region
+     */
+
+    public static BufferedImage copyRegion(BufferedImage image, Rectangle region) {
+        Rectangle clipped = clip(image, region);
+        BufferedImage copy = new BufferedImage(clipped.width, clipped.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image.getSubimage(clipped.x, clipped.y, clipped.width, clipped.height), 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    /**
+     * Stop accepting artifacts and wait until the queued ones are written
+     *
+     * @param timeout maximum time to wait
+     * @param unit    time unit of the timeout
+     * @throws InterruptedException exception thrown if the waiting thread gets interrupted
+     */
+
+    public void close(long timeout, TimeUnit unit) throws InterruptedException {
+        this.shutdown();
+        this.thread.join(unit.toMillis(timeout));
+    }
+
+    /**
+     * Get the amount of written artifacts
+     *
+     * @return written artifacts
+     */
+
+    public long getWritten() {
+        return this.written.get();
+    }
+
+    /**
+     * Get the amount of artifacts dropped because the queue was full
+     *
+     * @return dropped artifacts
+     */
+
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Get the amount of artifacts rejected by the rate limit
+     *
+     * @return rate limited artifacts
+     */
+
+    public long getRateLimited() {
+        return this.rateLimited.get();
+    }
+
+    /**
+     * Get the amount of artifacts skipped because an identical one was written recently
+     *
+     * @return deduplicated artifacts
+     */
+
+    public long getDeduplicated() {
+        return this.deduplicated.get();
+    }
+
+    /**
+     * Internal method to stop accepting artifacts without waiting for the queued ones
+     */
+
+    private void shutdown() {
+        this.closed = true;
+        this.thread.interrupt();
+    }
+
+    /**
+     * Internal method to check an artifact against the deduplication, the rate limit and the queue capacity
+     * <p>
+     * Duplicates are rejected before the rate limit so they don't use up the budget of new artifacts
+     *
+     * @param kind kind of the artifact
+     * @param hash content hash of the artifact
+     * @return whether the artifact should be queued
+     */
+
+    private boolean accept(String kind, long hash) {
+        if (this.closed) return false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Long lastSeen = this.recent.get(hash);
+            if (lastSeen != null && now - lastSeen < DEDUPE_WINDOW) {
+                this.deduplicated.incrementAndGet();
+                return false;
+            }
+            if (now - this.windowStart >= TimeUnit.MINUTES.toMillis(1)) {
+                this.windowStart = now;
+                this.windowCount = 0;
+            }
+            if (this.windowCount >= this.maxPerMinute) {
+                this.rateLimited.incrementAndGet();
+                return false;
+            }
+            if (this.queue.remainingCapacity() == 0) {
+                this.dropped.incrementAndGet();
+                log.debug("Dropped diagnostic artifact {} since the queue is full", kind);
+                return false;
+            }
+            this.windowCount++;
+            this.recent.put(hash, now);
+        }
+        return true;
+    }
+
+    /**
+     * Internal method to add an accepted artifact to the queue
+     *
+     * @param artifact accepted artifact
+     * @return whether the queue had room for the artifact
+     */
+
+    private boolean enqueue(DiagnosticArtifact artifact) {
+        if (!this.queue.offer(artifact)) {
+            this.dropped.incrementAndGet();
+            log.debug("Dropped diagnostic artifact {} since the queue is full", artifact.getKind());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Internal method which writes queued artifacts until the writer is closed and the queue is drained
+     */
+
+    private void run() {
+        while (!this.closed || !this.queue.isEmpty()) {
+            DiagnosticArtifact artifact;
+            try {
+                artifact = this.closed ? this.queue.poll() : this.queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (artifact == null) continue;
+            try {
+                this.write(artifact);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to write diagnostic artifact {}", artifact.getKind(), e);
+            }
+        }
+    }
+
+    /**
+     * Internal method to write an artifact image with its json sidecar
+     *
+     * @param artifact artifact to be written
+     * @throws IOException exception thrown when a file can't be written
+     */
+
+    private void write(DiagnosticArtifact artifact) throws IOException {
+        BufferedImage image = artifact.getImage();
+        long hash = hash(artifact.getKind(), image, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (!artifact.getHighlights().isEmpty()) {
+            Graphics2D graphics = image.createGraphics();
+            graphics.setStroke(new BasicStroke(BORDER_WIDTH));
+            graphics.setColor(HIGHLIGHT_COLOR);
+            for (Rectangle highlight : artifact.getHighlights()) graphics.draw(highlight);
+            graphics.dispose();
+        }
+
+        File directory = artifact.getDirectory();
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Failed to create directory " + directory);
+        String name = artifact.getKind() + "-" + artifact.getTimestamp() + "-" + Long.toHexString(hash);
+        File imageFile = new File(directory, name + ".png");
+        if (imageFile.exists()) return;
+        ImageIO.write(image, "png", imageFile);
+
+        Map<String, Object> sidecar = new LinkedHashMap<>();
+        sidecar.put("kind", artifact.getKind());
+        sidecar.put("timestamp", artifact.getTimestamp());
+        sidecar.put("region", artifact.getRegion());
+        sidecar.put("highlights", artifact.getHighlights());
+        sidecar.put("metadata", artifact.getMetadata());
+        try (Writer writer = Files.newBufferedWriter(new File(directory, name + ".json").toPath(), StandardCharsets.UTF_8)) {
+            GSON.toJson(sidecar, writer);
+        }
+        this.written.incrementAndGet();
+        log.info("Saved diagnostic artifact {}", imageFile);
+    }
+
+    /**
+     * Internal method to calculate a content hash of an artifact used for deduplication
+     *
+     * @param kind   kind of the artifact
+     * @param image  image containing the artifact
+     * @param bounds bounds of the artifact inside the image (already clipped to the image)
+     * @return hash of the kind and the sampled pixels
+     */
+
+    private static long hash(String kind, BufferedImage image, Rectangle bounds) {
+        long hash = kind.hashCode();
+        int stepX = Math.max(1, bounds.width / 64);
+        int stepY = Math.max(1, bounds.height / 64);
+        for (int y = 0; y < bounds.height; y += stepY) {
+            for (int x = 0; x < bounds.width; x += stepX) hash = hash * 31 + (image.getRGB(bounds.x + x, bounds.y + y) | 0xff000000);
+        }
+        return hash * 31 + bounds.width * 7919L + bounds.height;
+    }
+
+    /**
+     * Internal method to clip a region to the bounds of an image
+     *
+     * @param image  image the region lies in
+     * @param region region to be clipped
+     * @return clipped region (a single pixel if the region lies outside of the image)
+     */
+
+    private static Rectangle clip(BufferedImage image, Rectangle region) {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        return clipped.isEmpty() ? new Rectangle(0, 0, 1, 1) : clipped;
+    }
+}
@@ -1,15 +1,23 @@
 package ch.wsb.SVMenuParser.fetcher;
 
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserStage;
+import ch.wsb.SVMenuParser.raster.RasterLease;
+import ch.wsb.SVMenuParser.raster.RasterPool;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
 
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.URL;
-import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class MenuFetcher {
@@ -27,13 +35,18 @@ public class MenuFetcher {
 
     public MenuFetcher(URL url) throws IOException {
         log.info("Initialized new MenuFetcher");
-        long start = new Date().getTime();
         if (!url.toString().contains("sv-restaurant")) throw new Error("URL has to contain 'sv-restaurant'");
         if (!url.toString().endsWith(".pdf")) throw new Error("URL has to link to a PDF document");
-        InputStream stream = url.openStream();
-        long end = new Date().getTime();
-        log.info("Successfully downloaded menu week in {}ms", end - start);
-        this.PDF = PDDocument.load(stream);
+        long start = System.nanoTime();
+        byte[] document;
+        try (InputStream stream = url.openStream()) {
+            document = stream.readAllBytes();
+        }
+        long downloadTime = Metrics.recordSince(ParserStage.DOWNLOAD, start);
+        log.info("Successfully downloaded menu week ({} bytes) in {}ms", document.length, TimeUnit.NANOSECONDS.toMillis(downloadTime));
+        start = System.nanoTime();
+        this.PDF = PDDocument.load(document);
+        Metrics.recordSince(ParserStage.LOAD, start);
         log.debug("Successfully loaded pdf document");
     }
 
@@ -57,7 +70,9 @@ public class MenuFetcher {
 
     public MenuFetcher(File file) throws IOException {
         log.info("Initialized new MenuFetcher");
+        long start = System.nanoTime();
         this.PDF = PDDocument.load(file);
+        Metrics.recordSince(ParserStage.LOAD, start);
     }
 
     /**
@@ -68,8 +83,59 @@ public class MenuFetcher {
      */
 
     public BufferedImage getImage() throws IOException {
+        long start = System.nanoTime();
         PDFRenderer renderer = new PDFRenderer(this.PDF);
-        return renderer.renderImage(0, IMAGE_SCALE_FACTOR, ImageType.RGB);
+        BufferedImage image = renderer.renderImage(0, IMAGE_SCALE_FACTOR, ImageType.RGB);
+        Metrics.recordSince(ParserStage.RENDER, start);
+        return image;
+    }
+
+    /**
+     * Render the first page of the downloaded PDF document into a pooled image
+     * <p>
+     * The image has the same size and content as the one of {@link #getImage()} but its backing is reused across documents
+     *
+     * @return lease of the rendered image which has to be released after the image isn't used anymore
+     * @throws IOException exception thrown when the image capturing fails
+     */
+
+    public RasterLease renderPage() throws IOException {
+        long start = System.nanoTime();
+        Dimension size = this.getImageSize();
+        RasterLease lease = RasterPool.getInstance().lease(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = lease.getImage().createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            new PDFRenderer(this.PDF).renderPageToGraphics(0, graphics, IMAGE_SCALE_FACTOR, IMAGE_SCALE_FACTOR, RenderDestination.EXPORT);
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        } finally {
+            graphics.dispose();
+        }
+        Metrics.recordSince(ParserStage.RENDER, start);
+        return lease;
+    }
+
+    /**
+     * Get the size of the image of the first page without rendering it
+     *
+     * @return size of the image rendered by {@link #getImage()} and {@link #renderPage()}
+     */
+
+    public Dimension getImageSize() {
+        PDPage page = this.PDF.getPage(0);
+        PDRectangle cropBox = page.getCropBox();
+        float width = cropBox.getWidth();
+        float height = cropBox.getHeight();
+        if (page.getRotation() == 90 || page.getRotation() == 270) {
+            width = cropBox.getHeight();
+            height = cropBox.getWidth();
+        }
+        //same size calculation as PDFRenderer#renderImage
+        int imageWidth = (int) Math.max(Math.floor(width * IMAGE_SCALE_FACTOR), 1);
+        int imageHeight = (int) Math.max(Math.floor(height * IMAGE_SCALE_FACTOR), 1);
+        return new Dimension(imageWidth, imageHeight);
     }
 
     /**
@@ -0,0 +1,44 @@
+package ch.wsb.SVMenuParser.governor;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GovernorPermit implements AutoCloseable {
+    @Getter
+    private final long bytes;
+
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Create a new GovernorPermit instance
+     *
+     * @param bytes   bytes of the heap budget held by the permit (0 for ocr slots)
+     * @param release action returning the permit to the governor
+     */
+
+    GovernorPermit(long bytes, Runnable release) {
+        this.bytes = bytes;
+        this.release = release;
+    }
+
+    /**
+     * Check whether the permit was released
+     *
+     * @return whether the permit was returned to the governor
+     */
+
+    public boolean isReleased() {
+        return this.released.get();
+    }
+
+    /**
+     * Return the permit to the governor (releasing it more than once has no effect)
+     */
+
+    @Override
+    public void close() {
+        if (this.released.compareAndSet(false, true)) this.release.run();
+    }
+}
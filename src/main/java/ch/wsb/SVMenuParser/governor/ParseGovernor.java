@@ -0,0 +1,287 @@
+package ch.wsb.SVMenuParser.governor;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class ParseGovernor {
+    public static final long DOCUMENT_OVERHEAD_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_QUEUED = 64;
+    public static final long DEFAULT_MAX_WAIT = TimeUnit.MINUTES.toMillis(2);
+
+    private static volatile ParseGovernor instance = new ParseGovernor(Runtime.getRuntime().maxMemory() / 2, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_QUEUED, DEFAULT_MAX_WAIT);
+
+    @Getter
+    private final long heapBudget;
+
+    @Getter
+    private final int ocrSlots;
+
+    @Getter
+    private final int maxQueued;
+
+    @Getter
+    private final long maxWait;
+
+    private final Semaphore ocrSemaphore;
+    private final Deque<Object> waiting = new ArrayDeque<>();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong ocrQueued = new AtomicLong();
+
+    private long usedBytes;
+    private int activeParses;
+
+    /**
+     * Create a new ParseGovernor instance
+     *
+     * @param heapBudget maximum amount of bytes estimated to be used by all admitted parses together
+     * @param ocrSlots   maximum amount of tesseract calls running at the same time
+     * @param maxQueued  maximum amount of parses waiting for admission before new ones are rejected right away
+     * @param maxWait    maximum time in milliseconds a parse waits for admission before it gets rejected
+     */
+
+    public ParseGovernor(long heapBudget, int ocrSlots, int maxQueued, long maxWait) {
+        if (heapBudget < 1) throw new IllegalArgumentException("Heap budget must at least be one byte");
+        if (ocrSlots < 1) throw new IllegalArgumentException("There must at least be one ocr slot");
+        if (maxQueued < 0) throw new IllegalArgumentException("Queue size can't be negative");
+        this.heapBudget = heapBudget;
+        this.ocrSlots = ocrSlots;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.ocrSemaphore = new Semaphore(ocrSlots, true);
+    }
+
+    /**
+     * Get the governor used by all parsers
+     *
+     * @return shared governor instance (null if parses aren't limited)
+     */
+
+    public static ParseGovernor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the governor used by all parsers
+     * <p>
+     * Parses admitted by the previous governor still release their permits to it
+     *
+     * @param governor new shared governor instance (null to stop limiting parses)
+     */
+
+    public static void setInstance(ParseGovernor governor) {
+        instance = governor;
+    }
+
+    /**
+     * Estimate the heap used by the parse of a fetched document
+     * <p>
+     * Consists of the rgb page raster, a grayscale copy of it for the ocr preprocessing and a fixed overhead for the document
+     *
+     * @param fetcher fetcher containing the document
+     * @return estimated bytes
+     */
+
+    public static long estimate(MenuFetcher fetcher) {
+        Dimension size = fetcher.getImageSize();
+        long pixels = (long) size.width * size.height;
+        return pixels * 4 + pixels + DOCUMENT_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Wait until a parse fits into the heap budget and reserve its estimated bytes
+     * <p>
+     * Parses are admitted in arrival order. A parse which is larger than the whole budget is only admitted while
+     * no other parse is running. If the next parse in line doesn't fit, a garbage collection is requested once since
+     * parsers which were never closed only return their permit when they are collected.
+     *
+     * @param bytes estimated bytes of the parse
+     * @return permit which has to be released after the parse released its memory
+     * @throws InterruptedException       exception thrown if the thread gets interrupted while waiting
+     * @throws RejectedExecutionException exception thrown if the queue is full or the parse waited longer than the maximum wait time
+     */
+
+    public GovernorPermit admit(long bytes) throws InterruptedException, RejectedExecutionException {
+        long cost = Math.min(Math.max(bytes, 0), this.heapBudget);
+        synchronized (this) {
+            if (this.waiting.isEmpty() && this.usedBytes + cost <= this.heapBudget) return this.reserve(cost);
+            if (this.waiting.size() >= this.maxQueued) {
+                this.reject();
+                throw new RejectedExecutionException("Parse rejected since " + this.waiting.size() + " parses are already waiting for admission");
+            }
+
+            Object ticket = new Object();
+            this.waiting.addLast(ticket);
+            this.queued.incrementAndGet();
+            Metrics.increment(ParserCounter.PARSE_QUEUED);
+            log.debug("Queued parse of {} bytes since {} of {} bytes are in use", cost, this.usedBytes, this.heapBudget);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxWait);
+            boolean collected = false;
+            try {
+                while (this.waiting.peekFirst() != ticket || this.usedBytes + cost > this.heapBudget) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        this.reject();
+                        throw new RejectedExecutionException("Parse rejected after waiting " + this.maxWait + "ms for admission");
+                    }
+                    if (!collected && this.waiting.peekFirst() == ticket) {
+                        //parsers which were never closed only release their permit once the cleaner ran after a collection
+                        collected = true;
+                        System.gc();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return this.reserve(cost);
+            } finally {
+                //let the next parse in line check whether it fits now
+                this.waiting.remove(ticket);
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until fewer than the maximum amount of tesseract calls are running
+     *
+     * @return permit which has to be released after the tesseract call finished
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting
+     */
+
+    public GovernorPermit acquireOcrSlot() throws InterruptedException {
+        if (!this.ocrSemaphore.tryAcquire()) {
+            this.ocrQueued.incrementAndGet();
+            Metrics.increment(ParserCounter.OCR_SLOT_QUEUED);
+            this.ocrSemaphore.acquire();
+        }
+        return new GovernorPermit(0, this.ocrSemaphore::release);
+    }
+
+    /**
+     * Get the amount of bytes reserved by the admitted parses
+     *
+     * @return reserved bytes
+     */
+
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Get the amount of admitted parses which didn't release their permit yet
+     *
+     * @return active parses
+     */
+
+    public synchronized int getActiveParses() {
+        return this.activeParses;
+    }
+
+    /**
+     * Get the amount of parses currently waiting for admission
+     *
+     * @return waiting parses
+     */
+
+    public synchronized int getWaitingParses() {
+        return this.waiting.size();
+    }
+
+    /**
+     * Get the amount of tesseract calls currently running
+     *
+     * @return used ocr slots
+     */
+
+    public int getActiveOcrSlots() {
+        return this.ocrSlots - this.ocrSemaphore.availablePermits();
+    }
+
+    /**
+     * Get the amount of admitted parses
+     *
+     * @return admitted parses
+     */
+
+    public long getAdmitted() {
+        return this.admitted.get();
+    }
+
+    /**
+     * Get the amount of parses which had to wait for admission
+     *
+     * @return queued parses
+     */
+
+    public long getQueued() {
+        return this.queued.get();
+    }
+
+    /**
+     * Get the amount of parses which were rejected
+     *
+     * @return rejected parses
+     */
+
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Get the amount of tesseract calls which had to wait for a free ocr slot
+     *
+     * @return queued tesseract calls
+     */
+
+    public long getOcrQueued() {
+        return this.ocrQueued.get();
+    }
+
+    /**
+     * Internal method to reserve bytes of the budget for an admitted parse
+     *
+     * @param cost reserved bytes
+     * @return permit releasing the bytes
+     */
+
+    private GovernorPermit reserve(long cost) {
+        this.usedBytes += cost;
+        this.activeParses++;
+        this.admitted.incrementAndGet();
+        return new GovernorPermit(cost, () -> this.release(cost));
+    }
+
+    /**
+     * Internal method to count a rejected parse
+     */
+
+    private void reject() {
+        this.rejected.incrementAndGet();
+        Metrics.increment(ParserCounter.PARSE_REJECTED);
+    }
+
+    /**
+     * Internal method to return the bytes of a finished parse to the budget
+     *
+     * @param cost released bytes
+     */
+
+    private synchronized void release(long cost) {
+        this.usedBytes -= cost;
+        this.activeParses--;
+        this.notifyAll();
+    }
+}
@@ -0,0 +1,52 @@
+package ch.wsb.SVMenuParser.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+public class Metrics {
+    private static volatile ParserMetrics registry = ParserMetrics.NOOP;
+
+    /**
+     * Set the metrics implementation used by all fetchers and parsers
+     *
+     * @param metrics metrics implementation (e.g. an adapter to an existing metrics library)
+     */
+
+    public static void setRegistry(ParserMetrics metrics) {
+        registry = Objects.requireNonNull(metrics);
+    }
+
+    /**
+     * Get the metrics implementation used by all fetchers and parsers
+     *
+     * @return current metrics implementation
+     */
+
+    public static ParserMetrics getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Record the duration of a stage which started at the given time
+     *
+     * @param stage stage which was executed
+     * @param start start time of the stage from {@link System#nanoTime()}
+     * @return duration of the stage in nanoseconds
+     */
+
+    public static long recordSince(ParserStage stage, long start) {
+        long duration = System.nanoTime() - start;
+        registry.record(stage, duration, TimeUnit.NANOSECONDS);
+        return duration;
+    }
+
+    /**
+     * Increment a parser counter by one
+     *
+     * @param counter counter to be incremented
+     */
+
+    public static void increment(ParserCounter counter) {
+        registry.increment(counter);
+    }
+}
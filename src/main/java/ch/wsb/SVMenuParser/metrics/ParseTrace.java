@@ -0,0 +1,217 @@
+package ch.wsb.SVMenuParser.metrics;
+
+import lombok.Getter;
+
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ParseTrace {
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    @Getter
+    private final long startNanos = System.nanoTime();
+
+    @Getter
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+
+    @Getter
+    private final List<CellTrace> cells = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    @Getter
+    private Path path;
+
+    @Getter
+    private long durationNanos;
+
+    public enum Path {
+        TEXT,
+        OCR
+    }
+
+    /**
+     * Add a stage span to the trace
+     *
+     * @param stage    executed stage
+     * @param start    start time of the stage from {@link System#nanoTime()}
+     * @param duration duration of the stage in nanoseconds
+     */
+
+    public void addSpan(ParserStage stage, long start, long duration) {
+        this.spans.add(new Span(stage, start - this.startNanos, duration, Thread.currentThread().getName()));
+    }
+
+    /**
+     * Add the result of a single menu cell ocr to the trace
+     *
+     * @param index          index of the menu cell
+     * @param bounds         bounding box of the menu cell
+     * @param duration       duration of the cell ocr in nanoseconds
+     * @param titleLength    length of the recognized title
+     * @param contentLength  length of the extracted content
+     * @param allocatedBytes bytes allocated by the ocr thread (-1 if unsupported)
+     */
+
+    public void addCell(int index, Rectangle bounds, long duration, int titleLength, int contentLength, long allocatedBytes) {
+        this.cells.add(new CellTrace(index, new Rectangle(bounds), duration, titleLength, contentLength, Thread.currentThread().getName()));
+        if (allocatedBytes > 0) this.allocatedBytes.addAndGet(allocatedBytes);
+    }
+
+    /**
+     * Add the bytes allocated by a thread taking part in the parse
+     *
+     * @param bytes allocated bytes (ignored if negative)
+     */
+
+    public void addAllocatedBytes(long bytes) {
+        if (bytes > 0) this.allocatedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Set the path the parser took to read the menus
+     *
+     * @param path parse path
+     */
+
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Mark the trace as finished
+     */
+
+    public void finish() {
+        this.durationNanos = System.nanoTime() - this.startNanos;
+    }
+
+    /**
+     * Get the amount of bytes allocated by all threads taking part in the parse
+     *
+     * @return allocated bytes (0 if the jvm doesn't support allocation measuring)
+     */
+
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.get();
+    }
+
+    /**
+     * Get the cell with the longest ocr duration
+     *
+     * @return slowest cell (null if no cell was parsed using ocr)
+     */
+
+    public CellTrace getSlowestCell() {
+        synchronized (this.cells) {
+            return this.cells.stream().max(Comparator.comparingLong(CellTrace::getDurationNanos)).orElse(null);
+        }
+    }
+
+    /**
+     * Get the bytes allocated by the current thread so far
+     *
+     * @return allocated bytes (-1 if the jvm doesn't support allocation measuring)
+     */
+
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("path=%s duration=%dms allocated=%dKB%n", this.path, TimeUnit.NANOSECONDS.toMillis(this.durationNanos), this.getAllocatedBytes() / 1024));
+        synchronized (this.spans) {
+            for (Span span : this.spans) {
+                builder.append(String.format("  %s +%dms %.2fms [%s]%n", span.getStage(), TimeUnit.NANOSECONDS.toMillis(span.getOffsetNanos()), span.getDurationNanos() / 1e6, span.getThread()));
+            }
+        }
+        synchronized (this.cells) {
+            for (CellTrace cell : this.cells) {
+                builder.append(String.format("  cell %d %.2fms title=%d content=%d [%s]%n", cell.getIndex(), cell.getDurationNanos() / 1e6, cell.getTitleLength(), cell.getContentLength(), cell.getThread()));
+            }
+        }
+        return builder.toString();
+    }
+
+    public static class Span {
+        @Getter
+        private final ParserStage stage;
+
+        @Getter
+        private final long offsetNanos;
+
+        @Getter
+        private final long durationNanos;
+
+        @Getter
+        private final String thread;
+
+        /**
+         * Create a new Span instance
+         *
+         * @param stage         executed stage
+         * @param offsetNanos   start of the stage relative to the start of the trace
+         * @param durationNanos duration of the stage
+         * @param thread        name of the executing thread
+         */
+
+        public Span(ParserStage stage, long offsetNanos, long durationNanos, String thread) {
+            this.stage = stage;
+            this.offsetNanos = offsetNanos;
+            this.durationNanos = durationNanos;
+            this.thread = thread;
+        }
+    }
+
+    public static class CellTrace {
+        @Getter
+        private final int index;
+
+        @Getter
+        private final Rectangle bounds;
+
+        @Getter
+        private final long durationNanos;
+
+        @Getter
+        private final int titleLength;
+
+        @Getter
+        private final int contentLength;
+
+        @Getter
+        private final String thread;
+
+        /**
+         * Create a new CellTrace instance
+         *
+         * @param index         index of the menu cell
+         * @param bounds        bounding box of the menu cell
+         * @param durationNanos duration of the cell ocr
+         * @param titleLength   length of the recognized title
+         * @param contentLength length of the extracted content
+         * @param thread        name of the ocr thread
+         */
+
+        public CellTrace(int index, Rectangle bounds, long durationNanos, int titleLength, int contentLength, String thread) {
+            this.index = index;
+            this.bounds = bounds;
+            this.durationNanos = durationNanos;
+            this.titleLength = titleLength;
+            this.contentLength = contentLength;
+            this.thread = thread;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ch.wsb.SVMenuParser.metrics;
+
+public enum ParserCounter {
+    OCR_FALLBACK("ocr_fallback"),
+    HEADER_OCR_RETRY("header_ocr_retry"),
+    UNKNOWN_ICON("unknown_icon"),
+    PARSE_FAILURE("parse_failure"),
+    OCR_CACHE_HIT("ocr_cache_hit"),
+    OCR_CACHE_MISS("ocr_cache_miss"),
+    GLYPH_MAP_HIT("glyph_map_hit"),
+    CELL_REUSED("cell_reused"),
+    REFRESH_COALESCED("refresh_coalesced"),
+    RASTER_POOL_HIT("raster_pool_hit"),
+    RASTER_POOL_MISS("raster_pool_miss"),
+    OCR_ESCALATION("ocr_escalation"),
+    LAYOUT_TEMPLATE_HIT("layout_template_hit"),
+    LAYOUT_TEMPLATE_MISS("layout_template_miss"),
+    LAYOUT_TEMPLATE_REJECTED("layout_template_rejected"),
+    PARSE_QUEUED("parse_queued"),
+    PARSE_REJECTED("parse_rejected"),
+    OCR_SLOT_QUEUED("ocr_slot_queued"),
+    TITLE_BATCH_FALLBACK("title_batch_fallback");
+
+    private final String name;
+
+    ParserCounter(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Name of the counter
+     *
+     * @return string name
+     */
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
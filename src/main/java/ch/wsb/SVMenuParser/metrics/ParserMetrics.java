@@ -0,0 +1,33 @@
+package ch.wsb.SVMenuParser.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+public interface ParserMetrics {
+    ParserMetrics NOOP = new ParserMetrics() {
+        @Override
+        public void record(ParserStage stage, long duration, TimeUnit unit) {
+        }
+
+        @Override
+        public void increment(ParserCounter counter) {
+        }
+    };
+
+    /**
+     * Record the duration of a parser stage
+     *
+     * @param stage    stage which was executed
+     * @param duration duration of the stage
+     * @param unit     time unit of the duration
+     */
+
+    void record(ParserStage stage, long duration, TimeUnit unit);
+
+    /**
+     * Increment a parser counter by one
+     *
+     * @param counter counter to be incremented
+     */
+
+    void increment(ParserCounter counter);
+}
@@ -0,0 +1,34 @@
+package ch.wsb.SVMenuParser.metrics;
+
+public enum ParserStage {
+    DOWNLOAD("download"),
+    LOAD("load"),
+    RENDER("render"),
+    STROKE_PARSE("stroke_parse"),
+    GRID_DETECTION("grid_detection"),
+    FINGERPRINT("fingerprint"),
+    HEADER_EXTRACTION("header_extraction"),
+    TEXT_EXTRACTION("text_extraction"),
+    CELL_OCR("cell_ocr"),
+    TITLE_BATCH_OCR("title_batch_ocr"),
+    LABEL_MATCHING("label_matching"),
+    SIMILARITY("similarity"),
+    PARSE("parse");
+
+    private final String name;
+
+    ParserStage(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Name of the stage timer
+     *
+     * @return string name
+     */
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
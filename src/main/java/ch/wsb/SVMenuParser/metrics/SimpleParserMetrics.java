@@ -0,0 +1,134 @@
+package ch.wsb.SVMenuParser.metrics;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SimpleParserMetrics implements ParserMetrics {
+    private final Map<ParserStage, Timer> timers = new EnumMap<>(ParserStage.class);
+    private final Map<ParserCounter, LongAdder> counters = new EnumMap<>(ParserCounter.class);
+
+    /**
+     * Create a new SimpleParserMetrics instance which keeps all metrics in memory
+     */
+
+    public SimpleParserMetrics() {
+        for (ParserStage stage : ParserStage.values()) this.timers.put(stage, new Timer());
+        for (ParserCounter counter : ParserCounter.values()) this.counters.put(counter, new LongAdder());
+    }
+
+    @Override
+    public void record(ParserStage stage, long duration, TimeUnit unit) {
+        long nanos = unit.toNanos(duration);
+        Timer timer = this.timers.get(stage);
+        timer.count.increment();
+        timer.total.add(nanos);
+        timer.max.accumulate(nanos);
+    }
+
+    @Override
+    public void increment(ParserCounter counter) {
+        this.counters.get(counter).increment();
+    }
+
+    /**
+     * Get a snapshot of a stage timer
+     *
+     * @param stage stage of the timer
+     * @return snapshot with the current timer values
+     */
+
+    public TimerSnapshot getTimer(ParserStage stage) {
+        Timer timer = this.timers.get(stage);
+        return new TimerSnapshot(stage, timer.count.sum(), timer.total.sum(), timer.max.get());
+    }
+
+    /**
+     * Get the current value of a counter
+     *
+     * @param counter counter to be read
+     * @return current counter value
+     */
+
+    public long getCount(ParserCounter counter) {
+        return this.counters.get(counter).sum();
+    }
+
+    /**
+     * Reset all timers and counters
+     */
+
+    public void reset() {
+        for (Timer timer : this.timers.values()) {
+            timer.count.reset();
+            timer.total.reset();
+            timer.max.reset();
+        }
+        for (LongAdder counter : this.counters.values()) counter.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (ParserStage stage : ParserStage.values()) {
+            TimerSnapshot snapshot = this.getTimer(stage);
+            if (snapshot.getCount() == 0) continue;
+            builder.append(String.format("%s: count=%d mean=%.2fms max=%.2fms%n", stage, snapshot.getCount(), snapshot.getMean(TimeUnit.MICROSECONDS) / 1000d, snapshot.getMax() / 1e6));
+        }
+        for (ParserCounter counter : ParserCounter.values()) {
+            builder.append(String.format("%s: %d%n", counter, this.getCount(counter)));
+        }
+        return builder.toString();
+    }
+
+    private static class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    }
+
+    public static class TimerSnapshot {
+        @Getter
+        private final ParserStage stage;
+
+        @Getter
+        private final long count;
+
+        @Getter
+        private final long totalNanos;
+
+        @Getter
+        private final long max;
+
+        /**
+         * Create a new TimerSnapshot instance
+         *
+         * @param stage      stage of the timer
+         * @param count      amount of recorded durations
+         * @param totalNanos sum of all recorded durations in nanoseconds
+         * @param max        longest recorded duration in nanoseconds
+         */
+
+        public TimerSnapshot(ParserStage stage, long count, long totalNanos, long max) {
+            this.stage = stage;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.max = max;
+        }
+
+        /**
+         * Get the mean duration of the timer
+         *
+         * @param unit time unit of the result
+         * @return mean duration (0 if nothing was recorded)
+         */
+
+        public long getMean(TimeUnit unit) {
+            return this.count == 0 ? 0 : unit.convert(this.totalNanos / this.count, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class FontGlyphMap {
+    public static final int MIN_VOTES = 2;
+    public static final double MIN_AGREEMENT = 0.75;
+
+    @Getter
+    private final String font;
+
+    private final Map<String, Map<String, Integer>> votes = new HashMap<>();
+
+    private transient boolean dirty;
+
+    /**
+     * Create a new FontGlyphMap instance
+     *
+     * @param font key of the font consisting of its name and the hash of its font program
+     */
+
+    public FontGlyphMap(String font) {
+        this.font = font;
+    }
+
+    /**
+     * Add an observation of a glyph code recognized as a character
+     *
+     * @param code      glyph code of the font
+     * @param character character recognized by ocr
+     */
+
+    public synchronized void vote(String code, String character) {
+        this.votes.computeIfAbsent(code, key -> new HashMap<>()).merge(character, 1, Integer::sum);
+        this.dirty = true;
+    }
+
+    /**
+     * Get the learned character of a glyph code
+     * <p>
+     * A character is only returned if it was observed often enough and most observations agree on it
+     *
+     * @param code glyph code of the font
+     * @return learned character (null if the glyph code isn't learned yet)
+     */
+
+    public synchronized String get(String code) {
+        Map<String, Integer> candidates = this.votes.get(code);
+        if (candidates == null) return null;
+        String best = null;
+        int bestVotes = 0;
+        int total = 0;
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            total += candidate.getValue();
+            if (candidate.getValue() > bestVotes) {
+                best = candidate.getKey();
+                bestVotes = candidate.getValue();
+            }
+        }
+        if (bestVotes < MIN_VOTES || bestVotes < total * MIN_AGREEMENT) return null;
+        return best;
+    }
+
+    /**
+     * Get the amount of learned glyph codes
+     *
+     * @return learned glyph codes
+     */
+
+    public synchronized int size() {
+        int size = 0;
+        for (String code : this.votes.keySet()) {
+            if (this.get(code) != null) size++;
+        }
+        return size;
+    }
+
+    /**
+     * Check whether observations were added since the map was last persisted
+     *
+     * @return whether the map has unsaved observations
+     */
+
+    public synchronized boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Mark the map as persisted
+     */
+
+    public synchronized void markClean() {
+        this.dirty = false;
+    }
+}
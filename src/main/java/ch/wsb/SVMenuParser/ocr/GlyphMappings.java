@@ -0,0 +1,249 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+@Slf4j
+public class GlyphMappings {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static volatile GlyphMappings instance = new GlyphMappings(null);
+
+    @Getter
+    private final File directory;
+
+    private final Map<String, FontGlyphMap> fonts = new HashMap<>();
+    private final Map<PDFont, String> fontKeys = new WeakHashMap<>();
+
+    /**
+     * Create a new GlyphMappings instance
+     *
+     * @param directory directory in which the learned mappings are persisted (null if they should only be kept in memory)
+     */
+
+    public GlyphMappings(File directory) {
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Failed to create glyph mapping directory " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Get the mappings used by all parsers
+     *
+     * @return shared mappings instance (null if learning is disabled)
+     */
+
+    public static GlyphMappings getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the mappings used by all parsers
+     *
+     * @param mappings new shared mappings instance (null to disable learning)
+     */
+
+    public static void setInstance(GlyphMappings mappings) {
+        instance = mappings;
+    }
+
+    /**
+     * Decode words using the learned glyph mappings of their fonts
+     *
+     * @param words glyphs of the words in reading order
+     * @return decoded words separated by spaces (null if any glyph isn't learned yet)
+     */
+
+    public String decode(List<List<TextPosition>> words) {
+        if (words.isEmpty()) return null;
+        StringBuilder text = new StringBuilder();
+        for (List<TextPosition> word : words) {
+            if (text.length() > 0) text.append(' ');
+            for (TextPosition glyph : word) {
+                String character = this.getFont(glyph.getFont()).get(code(glyph));
+                if (character == null) return null;
+                text.append(character);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Learn the glyph mappings of words from their recognized text
+     * <p>
+     * The text is only used if it has as many words as given and every word has as many characters as glyphs
+     *
+     * @param words glyphs of the words in reading order
+     * @param text  text recognized by ocr
+     * @return whether the text could be aligned with the glyphs
+     */
+
+    public boolean learn(List<List<TextPosition>> words, String text) {
+        String[] tokens = text.trim().split("\\s+");
+        if (tokens.length != words.size()) return false;
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].codePointCount(0, tokens[i].length()) != words.get(i).size()) return false;
+        }
+
+        for (int i = 0; i < tokens.length; i++) {
+            int[] characters = tokens[i].codePoints().toArray();
+            List<TextPosition> word = words.get(i);
+            for (int j = 0; j < word.size(); j++) {
+                TextPosition glyph = word.get(j);
+                this.getFont(glyph.getFont()).vote(code(glyph), new String(characters, j, 1));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write all mappings with new observations to the directory
+     */
+
+    public void flush() {
+        if (this.directory == null) return;
+        List<FontGlyphMap> dirty = new ArrayList<>();
+        synchronized (this.fonts) {
+            for (FontGlyphMap font : this.fonts.values()) {
+                if (font.isDirty()) dirty.add(font);
+            }
+        }
+        for (FontGlyphMap font : dirty) {
+            try {
+                String json;
+                synchronized (font) {
+                    json = GSON.toJson(font);
+                    font.markClean();
+                }
+                File temporary = File.createTempFile("glyphs", ".tmp", this.directory);
+                Files.writeString(temporary.toPath(), json, StandardCharsets.UTF_8);
+                Files.move(temporary.toPath(), this.getFile(font.getFont()).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Failed to write glyph mapping of font {}", font.getFont(), e);
+            }
+        }
+    }
+
+    /**
+     * Get the amount of learned glyph codes of a font
+     *
+     * @param font font of the document
+     * @return learned glyph codes
+     */
+
+    public int getLearnedGlyphs(PDFont font) {
+        return this.getFont(font).size();
+    }
+
+    /**
+     * Internal method to get the mapping of a font and load it from the directory if it isn't in memory yet
+     *
+     * @param font font of the document
+     * @return mapping of the font
+     */
+
+    private FontGlyphMap getFont(PDFont font) {
+        String key;
+        synchronized (this.fontKeys) {
+            key = this.fontKeys.get(font);
+            if (key == null) {
+                key = fontKey(font);
+                this.fontKeys.put(font, key);
+            }
+        }
+
+        synchronized (this.fonts) {
+            FontGlyphMap mapping = this.fonts.get(key);
+            if (mapping != null) return mapping;
+            if (this.directory != null) {
+                File file = this.getFile(key);
+                if (file.exists()) {
+                    try {
+                        mapping = GSON.fromJson(Files.readString(file.toPath(), StandardCharsets.UTF_8), FontGlyphMap.class);
+                        log.debug("Loaded glyph mapping of font {}", key);
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Failed to read glyph mapping {}", file, e);
+                    }
+                }
+            }
+            if (mapping == null) mapping = new FontGlyphMap(key);
+            this.fonts.put(key, mapping);
+            return mapping;
+        }
+    }
+
+    /**
+     * Internal method to get the file of a persisted font mapping
+     *
+     * @param key key of the font
+     * @return json file of the mapping
+     */
+
+    private File getFile(String key) {
+        return new File(this.directory, key.replaceAll("[^A-Za-z0-9._+-]", "_") + ".json");
+    }
+
+    /**
+     * Internal method to calculate the key of a font from its name and the hash of its embedded font program
+     *
+     * @param font font of the document
+     * @return font key
+     */
+
+    private static String fontKey(PDFont font) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        String name = String.valueOf(font.getName());
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor != null) {
+            for (PDStream stream : new PDStream[]{descriptor.getFontFile(), descriptor.getFontFile2(), descriptor.getFontFile3()}) {
+                if (stream == null) continue;
+                try {
+                    digest.update(stream.toByteArray());
+                } catch (IOException e) {
+                    log.debug("Failed to read font program of {}", name, e);
+                }
+            }
+        }
+
+        StringBuilder key = new StringBuilder(name).append('-');
+        byte[] hash = digest.digest();
+        for (int i = 0; i < 8; i++) key.append(String.format("%02x", hash[i]));
+        return key.toString();
+    }
+
+    /**
+     * Internal method to get the glyph code of a text position
+     *
+     * @param glyph text position of a single glyph
+     * @return glyph code (codes joined by commas if the glyph consists of multiple codes)
+     */
+
+    private static String code(TextPosition glyph) {
+        int[] codes = glyph.getCharacterCodes();
+        if (codes == null || codes.length == 0) return "u" + glyph.getUnicode();
+        StringJoiner joiner = new StringJoiner(",");
+        for (int code : codes) joiner.add(String.valueOf(code));
+        return joiner.toString();
+    }
+}
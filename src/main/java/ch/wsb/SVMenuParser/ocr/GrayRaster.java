@@ -0,0 +1,369 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import lombok.Getter;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GrayRaster {
+    public static final int FOREGROUND_THRESHOLD = 128;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    @Getter
+    private final byte[] pixels;
+
+    public enum Binarization {
+        NONE,
+        OTSU,
+        ADAPTIVE
+    }
+
+    /**
+     * Create a new GrayRaster instance
+     *
+     * @param width  width of the raster
+     * @param height height of the raster
+     * @param pixels 8-bit gray values in row-major order (0 is black)
+     */
+
+    public GrayRaster(int width, int height, byte[] pixels) {
+        if (width < 1 || height < 1) throw new IllegalArgumentException("Raster must at least be one pixel wide and high");
+        if (pixels.length != width * height) throw new IllegalArgumentException("Pixel count doesn't match the raster size");
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Create a grayscale raster of a region of an image
+     *
+     * @param image  source image
+     * @param region region to be converted (gets clipped to the image bounds)
+     * @return grayscale raster of the region
+     */
+
+    public static GrayRaster fromImage(BufferedImage image, Rectangle region) {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (clipped.isEmpty()) throw new IllegalArgumentException("Region " + region + " lies outside of the image");
+        byte[] pixels = new byte[clipped.width * clipped.height];
+        int[] row = new int[clipped.width];
+        for (int y = 0; y < clipped.height; y++) {
+            image.getRGB(clipped.x, clipped.y + y, clipped.width, 1, row, 0, clipped.width);
+            int offset = y * clipped.width;
+            for (int x = 0; x < clipped.width; x++) {
+                int rgb = row[x];
+                pixels[offset + x] = (byte) ((((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 150 + (rgb & 0xff) * 29) >> 8);
+            }
+        }
+        return new GrayRaster(clipped.width, clipped.height, pixels);
+    }
+
+    /**
+     * Get the gray value of a pixel
+     *
+     * @param x x-coordinate of the pixel
+     * @param y y-coordinate of the pixel
+     * @return gray value between 0 and 255
+     */
+
+    public int get(int x, int y) {
+        return this.pixels[y * this.width + x] & 0xff;
+    }
+
+    /**
+     * Scale the raster by a factor (area averaging when downscaling, bilinear when upscaling)
+     *
+     * @param factor scale factor
+     * @return scaled raster (this raster if the factor is 1)
+     */
+
+    public GrayRaster scale(double factor) {
+        if (factor == 1) return this;
+        int scaledWidth = Math.max(1, (int) (this.width * factor));
+        int scaledHeight = Math.max(1, (int) (this.height * factor));
+        byte[] scaled = new byte[scaledWidth * scaledHeight];
+
+        if (factor < 1) {
+            for (int y = 0; y < scaledHeight; y++) {
+                int startY = (int) (y / factor);
+                int endY = Math.min(this.height, Math.max(startY + 1, (int) ((y + 1) / factor)));
+                for (int x = 0; x < scaledWidth; x++) {
+                    int startX = (int) (x / factor);
+                    int endX = Math.min(this.width, Math.max(startX + 1, (int) ((x + 1) / factor)));
+                    int sum = 0;
+                    for (int sourceY = startY; sourceY < endY; sourceY++) {
+                        for (int sourceX = startX; sourceX < endX; sourceX++) sum += this.get(sourceX, sourceY);
+                    }
+                    scaled[y * scaledWidth + x] = (byte) (sum / ((endY - startY) * (endX - startX)));
+                }
+            }
+        } else {
+            for (int y = 0; y < scaledHeight; y++) {
+                double sourceY = Math.min(this.height - 1, y / factor);
+                int y0 = (int) sourceY;
+                int y1 = Math.min(this.height - 1, y0 + 1);
+                double dy = sourceY - y0;
+                for (int x = 0; x < scaledWidth; x++) {
+                    double sourceX = Math.min(this.width - 1, x / factor);
+                    int x0 = (int) sourceX;
+                    int x1 = Math.min(this.width - 1, x0 + 1);
+                    double dx = sourceX - x0;
+                    double top = this.get(x0, y0) * (1 - dx) + this.get(x1, y0) * dx;
+                    double bottom = this.get(x0, y1) * (1 - dx) + this.get(x1, y1) * dx;
+                    scaled[y * scaledWidth + x] = (byte) Math.round(top * (1 - dy) + bottom * dy);
+                }
+            }
+        }
+        return new GrayRaster(scaledWidth, scaledHeight, scaled);
+    }
+
+    /**
+     * Calculate the global threshold which separates the foreground from the background using otsu's method
+     *
+     * @return threshold between 0 and 255
+     */
+
+    public int otsuThreshold() {
+        int[] histogram = new int[256];
+        for (byte pixel : this.pixels) histogram[pixel & 0xff]++;
+
+        long total = this.pixels.length;
+        long sum = 0;
+        for (int i = 0; i < 256; i++) sum += (long) i * histogram[i];
+
+        long backgroundSum = 0;
+        long backgroundWeight = 0;
+        double highestVariance = -1;
+        int threshold = FOREGROUND_THRESHOLD;
+        for (int i = 0; i < 256; i++) {
+            backgroundWeight += histogram[i];
+            if (backgroundWeight == 0) continue;
+            long foregroundWeight = total - backgroundWeight;
+            if (foregroundWeight == 0) break;
+            backgroundSum += (long) i * histogram[i];
+            double backgroundMean = (double) backgroundSum / backgroundWeight;
+            double foregroundMean = (double) (sum - backgroundSum) / foregroundWeight;
+            double variance = (double) backgroundWeight * foregroundWeight * (backgroundMean - foregroundMean) * (backgroundMean - foregroundMean);
+            if (variance > highestVariance) {
+                highestVariance = variance;
+                threshold = i;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Binarize the raster with a global threshold
+     *
+     * @param threshold pixels with a gray value up to the threshold become black
+     * @return raster containing only 0 and 255 values
+     */
+
+    public GrayRaster binarize(int threshold) {
+        byte[] binary = new byte[this.pixels.length];
+        for (int i = 0; i < binary.length; i++) binary[i] = (this.pixels[i] & 0xff) <= threshold ? 0 : (byte) 255;
+        return new GrayRaster(this.width, this.height, binary);
+    }
+
+    /**
+     * Binarize the raster with a local threshold (bradley's method on an integral image)
+     *
+     * @param windowSize  size of the square neighbourhood used for the local mean
+     * @param sensitivity percentage a pixel has to be darker than the local mean to become black
+     * @return raster containing only 0 and 255 values
+     */
+
+    public GrayRaster binarizeAdaptive(int windowSize, int sensitivity) {
+        long[] integral = new long[(this.width + 1) * (this.height + 1)];
+        for (int y = 0; y < this.height; y++) {
+            long rowSum = 0;
+            for (int x = 0; x < this.width; x++) {
+                rowSum += this.get(x, y);
+                integral[(y + 1) * (this.width + 1) + x + 1] = integral[y * (this.width + 1) + x + 1] + rowSum;
+            }
+        }
+
+        int half = windowSize / 2;
+        byte[] binary = new byte[this.pixels.length];
+        for (int y = 0; y < this.height; y++) {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(this.height, y + half + 1);
+            for (int x = 0; x < this.width; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(this.width, x + half + 1);
+                long sum = integral[y1 * (this.width + 1) + x1] - integral[y0 * (this.width + 1) + x1] - integral[y1 * (this.width + 1) + x0] + integral[y0 * (this.width + 1) + x0];
+                long count = (long) (y1 - y0) * (x1 - x0);
+                binary[y * this.width + x] = this.get(x, y) * count * 100 <= sum * (100 - sensitivity) ? 0 : (byte) 255;
+            }
+        }
+        return new GrayRaster(this.width, this.height, binary);
+    }
+
+    /**
+     * Binarize the raster with the given method
+     *
+     * @param binarization binarization method
+     * @return binarized raster (this raster if no binarization should be applied)
+     */
+
+    public GrayRaster binarize(Binarization binarization) {
+        return switch (binarization) {
+            case NONE -> this;
+            case OTSU -> this.binarize(this.otsuThreshold());
+            case ADAPTIVE -> this.binarizeAdaptive(Math.max(15, this.height / 2), 15);
+        };
+    }
+
+    /**
+     * Rotate the raster by the small angle which aligns the text lines best with the x-axis
+     * <p>
+     * The angle is found by maximizing the variance of the horizontal projection profile of the dark pixels
+     *
+     * @param maxAngle largest angle in degrees which is tried in both directions
+     * @param step     step between two tried angles in degrees
+     * @return deskewed raster (this raster if no rotation improves the alignment)
+     */
+
+    public GrayRaster deskew(double maxAngle, double step) {
+        double bestAngle = 0;
+        double bestScore = this.projectionScore(0);
+        for (double angle = -maxAngle; angle <= maxAngle; angle += step) {
+            if (angle == 0) continue;
+            double score = this.projectionScore(angle);
+            if (score > bestScore) {
+                bestScore = score;
+                bestAngle = angle;
+            }
+        }
+        if (bestAngle == 0) return this;
+
+        double radians = Math.toRadians(bestAngle);
+        double sin = Math.sin(radians);
+        double cos = Math.cos(radians);
+        double centerX = this.width / 2d;
+        double centerY = this.height / 2d;
+        byte[] rotated = new byte[this.pixels.length];
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                int sourceX = (int) Math.round(centerX + (x - centerX) * cos - (y - centerY) * sin);
+                int sourceY = (int) Math.round(centerY + (x - centerX) * sin + (y - centerY) * cos);
+                boolean inside = sourceX >= 0 && sourceY >= 0 && sourceX < this.width && sourceY < this.height;
+                rotated[y * this.width + x] = inside ? this.pixels[sourceY * this.width + sourceX] : (byte) 255;
+            }
+        }
+        return new GrayRaster(this.width, this.height, rotated);
+    }
+
+    /**
+     * Copy a region of the raster
+     *
+     * @param region region to be copied (gets clipped to the raster bounds)
+     * @return raster of the region
+     */
+
+    public GrayRaster crop(Rectangle region) {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, this.width, this.height));
+        if (clipped.isEmpty()) throw new IllegalArgumentException("Region " + region + " lies outside of the raster");
+        byte[] cropped = new byte[clipped.width * clipped.height];
+        for (int y = 0; y < clipped.height; y++) {
+            System.arraycopy(this.pixels, (clipped.y + y) * this.width + clipped.x, cropped, y * clipped.width, clipped.width);
+        }
+        return new GrayRaster(clipped.width, clipped.height, cropped);
+    }
+
+    /**
+     * Find the bounds of the text lines using the horizontal projection profile of the dark pixels
+     *
+     * @param threshold     pixels with a gray value up to the threshold count as text
+     * @param minLineHeight minimal height of a text line in pixels
+     * @param padding       padding added around every found line
+     * @return bounds of the text lines ordered from top to bottom
+     */
+
+    public List<Rectangle> findTextLines(int threshold, int minLineHeight, int padding) {
+        List<Rectangle> lines = new ArrayList<>();
+        int lineStart = -1;
+        int left = this.width;
+        int right = -1;
+        for (int y = 0; y <= this.height; y++) {
+            boolean dark = false;
+            if (y < this.height) {
+                int offset = y * this.width;
+                for (int x = 0; x < this.width; x++) {
+                    if ((this.pixels[offset + x] & 0xff) <= threshold) {
+                        dark = true;
+                        if (x < left) left = x;
+                        if (x > right) right = x;
+                    }
+                }
+            }
+            if (dark && lineStart == -1) lineStart = y;
+            else if (!dark && lineStart != -1) {
+                if (y - lineStart >= minLineHeight) {
+                    Rectangle line = new Rectangle(left, lineStart, right - left + 1, y - lineStart);
+                    line.grow(padding, padding);
+                    lines.add(line.intersection(new Rectangle(0, 0, this.width, this.height)));
+                }
+                lineStart = -1;
+                left = this.width;
+                right = -1;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Copy the raster into an 8-bit buffer as expected by tesseract
+     *
+     * @return direct buffer with one byte per pixel
+     */
+
+    public ByteBuffer toBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(this.pixels.length);
+        buffer.put(this.pixels);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Wrap the raster into a grayscale image without copying the pixels
+     *
+     * @return image of type {@link BufferedImage#TYPE_BYTE_GRAY}
+     */
+
+    public BufferedImage toImage() {
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY), new int[]{8}, false, true, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(this.pixels, this.pixels.length), this.width, this.height, this.width, 1, new int[]{0}, null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Internal method to score how well the dark pixels align with horizontal lines at a given angle
+     *
+     * @param angle angle in degrees
+     * @return variance based score of the projection profile
+     */
+
+    private double projectionScore(double angle) {
+        double tan = Math.tan(Math.toRadians(angle));
+        int padding = (int) Math.ceil(Math.abs(tan) * this.width);
+        int[] profile = new int[this.height + 2 * padding];
+        for (int y = 0; y < this.height; y++) {
+            for (int x = 0; x < this.width; x++) {
+                if (this.get(x, y) < FOREGROUND_THRESHOLD) profile[(int) Math.round(y - x * tan) + padding]++;
+            }
+        }
+        double score = 0;
+        for (int count : profile) score += (double) count * count;
+        return score;
+    }
+}
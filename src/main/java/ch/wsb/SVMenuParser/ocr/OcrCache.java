@@ -0,0 +1,238 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class OcrCache {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static volatile OcrCache instance = new OcrCache(DEFAULT_CAPACITY, null);
+
+    @Getter
+    private final int capacity;
+
+    @Getter
+    private final File directory;
+
+    private final Map<String, String> entries;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a new OcrCache instance
+     *
+     * @param capacity  maximum amount of entries kept in memory
+     * @param directory directory of the on-disk tier (null if only the in-memory tier should be used)
+     */
+
+    public OcrCache(int capacity, File directory) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must at least be one entry");
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Failed to create ocr cache directory " + directory);
+        }
+        this.capacity = capacity;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return this.size() > OcrCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the cache used by all parsers
+     *
+     * @return shared cache instance (null if caching is disabled)
+     */
+
+    public static OcrCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the cache used by all parsers
+     *
+     * @param cache new shared cache instance (null to disable caching)
+     */
+
+    public static void setInstance(OcrCache cache) {
+        instance = cache;
+    }
+
+    /**
+     * Calculate the cache key of an image crop
+     *
+     * @param image  cropped image which gets passed to tesseract
+     * @param config description of the ocr configuration which influences the result
+     * @return hex encoded sha-256 key
+     */
+
+    public static String key(BufferedImage image, String config) {
+        return key(GrayRaster.fromImage(image, new Rectangle(0, 0, image.getWidth(), image.getHeight())), config);
+    }
+
+    /**
+     * Calculate the cache key of a preprocessed crop
+     * <p>
+     * The gray values are reduced to 4 bits so rendering noise doesn't change the key
+     *
+     * @param raster raster which gets passed to tesseract
+     * @param config description of the ocr configuration which influences the result
+     * @return hex encoded sha-256 key
+     */
+
+    public static String key(GrayRaster raster, String config) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        digest.update(config.getBytes(StandardCharsets.UTF_8));
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        digest.update(new byte[]{(byte) (width >> 24), (byte) (width >> 16), (byte) (width >> 8), (byte) width});
+        digest.update(new byte[]{(byte) (height >> 24), (byte) (height >> 16), (byte) (height >> 8), (byte) height});
+
+        byte[] pixels = raster.getPixels();
+        byte[] normalized = new byte[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) normalized[x] = (byte) ((pixels[y * width + x] & 0xff) >> 4);
+            digest.update(normalized);
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) key.append(String.format("%02x", b));
+        return key.toString();
+    }
+
+    /**
+     * Get the cached ocr result of a key
+     *
+     * @param key key of the crop
+     * @return cached text (null if the key isn't cached)
+     */
+
+    public String get(String key) {
+        String text;
+        synchronized (this.entries) {
+            text = this.entries.get(key);
+        }
+        if (text != null) {
+            this.memoryHits.incrementAndGet();
+            return text;
+        }
+
+        if (this.directory != null) {
+            File file = new File(this.directory, key + ".txt");
+            if (file.exists()) {
+                try {
+                    text = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+                    synchronized (this.entries) {
+                        this.entries.put(key, text);
+                    }
+                    this.diskHits.incrementAndGet();
+                    return text;
+                } catch (IOException e) {
+                    log.warn("Failed to read ocr cache entry {}", file, e);
+                }
+            }
+        }
+
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add an ocr result to the cache
+     *
+     * @param key  key of the crop
+     * @param text recognized text
+     */
+
+    public void put(String key, String text) {
+        synchronized (this.entries) {
+            this.entries.put(key, text);
+        }
+        if (this.directory == null) return;
+        try {
+            File temporary = File.createTempFile(key, ".tmp", this.directory);
+            Files.writeString(temporary.toPath(), text, StandardCharsets.UTF_8);
+            Files.move(temporary.toPath(), new File(this.directory, key + ".txt").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write ocr cache entry {}", key, e);
+        }
+    }
+
+    /**
+     * Remove all entries from the in-memory tier and reset the statistics
+     */
+
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+        this.memoryHits.set(0);
+        this.diskHits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Get the amount of lookups answered by the in-memory tier
+     *
+     * @return in-memory hits
+     */
+
+    public long getMemoryHits() {
+        return this.memoryHits.get();
+    }
+
+    /**
+     * Get the amount of lookups answered by the on-disk tier
+     *
+     * @return on-disk hits
+     */
+
+    public long getDiskHits() {
+        return this.diskHits.get();
+    }
+
+    /**
+     * Get the amount of lookups which required running tesseract
+     *
+     * @return misses
+     */
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Get the share of lookups which could skip tesseract
+     *
+     * @return hit rate between 0 and 1
+     */
+
+    public double getHitRate() {
+        long hits = this.getMemoryHits() + this.getDiskHits();
+        long total = hits + this.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
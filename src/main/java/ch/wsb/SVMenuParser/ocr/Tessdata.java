@@ -0,0 +1,149 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+@Slf4j
+public class Tessdata {
+    public static final String RESOURCE = "tessdata";
+    public static final String COMPLETE_MARKER = ".complete";
+
+    private static File extractionRoot = new File(System.getProperty("java.io.tmpdir"));
+    private static volatile File directory;
+
+    /**
+     * Set the directory in which the tessdata gets extracted if it's packaged in a jar
+     *
+     * @param root parent directory of the extracted tessdata (has to be set before the tessdata is resolved)
+     */
+
+    public static synchronized void setExtractionRoot(File root) {
+        if (directory != null) throw new IllegalStateException("Tessdata was already resolved to " + directory);
+        extractionRoot = root;
+    }
+
+    /**
+     * Get the tessdata directory
+     * <p>
+     * Tessdata packaged in a jar is extracted once into a directory named after the hash of its content so later
+     * processes with the same jar can reuse it
+     *
+     * @return local tessdata directory
+     * @throws IOException        exception thrown if no tessdata was found or it can't be extracted
+     * @throws URISyntaxException exception thrown if the tessdata location is invalid
+     */
+
+    public static File getDirectory() throws IOException, URISyntaxException {
+        File resolved = directory;
+        if (resolved == null) {
+            synchronized (Tessdata.class) {
+                if (directory == null) directory = resolve();
+                resolved = directory;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Internal method to find the tessdata on the classpath and extract it if necessary
+     *
+     * @return local tessdata directory
+     * @throws IOException        exception thrown if no tessdata was found or it can't be extracted
+     * @throws URISyntaxException exception thrown if the tessdata location is invalid
+     */
+
+    private static File resolve() throws IOException, URISyntaxException {
+        URL url = Tessdata.class.getClassLoader().getResource(RESOURCE);
+        if (url == null) throw new FileNotFoundException("No " + RESOURCE + " found on the classpath");
+        if (url.getProtocol().equals("file")) return Paths.get(url.toURI()).toFile();
+        if (!url.getProtocol().equals("jar")) throw new IOException("Unsupported tessdata location " + url);
+
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        try (JarFile jar = connection.getJarFile()) {
+            String prefix = connection.getEntryName() + "/";
+            List<JarEntry> entries = jar.stream().filter(entry -> !entry.isDirectory() && entry.getName().startsWith(prefix)).toList();
+
+            File target = new File(extractionRoot, "svmenuparser-tessdata-" + hash(entries));
+            if (new File(target, COMPLETE_MARKER).exists()) {
+                log.debug("Reusing extracted tessdata in {}", target);
+                return target;
+            }
+
+            long start = System.nanoTime();
+            Path temporary = Files.createTempDirectory(extractionRoot.toPath(), "svmenuparser-tessdata");
+            for (JarEntry entry : entries) {
+                Path file = temporary.resolve(entry.getName().substring(prefix.length())).normalize();
+                if (!file.startsWith(temporary)) throw new IOException("Invalid tessdata entry " + entry.getName());
+                Files.createDirectories(file.getParent());
+                try (InputStream stream = jar.getInputStream(entry)) {
+                    Files.copy(stream, file);
+                }
+            }
+            Files.createFile(temporary.resolve(COMPLETE_MARKER));
+
+            try {
+                Files.move(temporary, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                //another process extracted the same tessdata in the meantime
+                delete(temporary);
+                if (!new File(target, COMPLETE_MARKER).exists()) throw e;
+            }
+            log.info("Extracted tessdata to {} in {}ms", target, (System.nanoTime() - start) / 1000000);
+            return target;
+        }
+    }
+
+    /**
+     * Internal method to calculate a hash of the packaged tessdata files
+     *
+     * @param entries jar entries of the tessdata files
+     * @return hex encoded hash
+     */
+
+    private static String hash(List<JarEntry> entries) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        for (JarEntry entry : entries) {
+            digest.update((entry.getName() + ":" + entry.getSize() + ":" + entry.getCrc() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        StringBuilder hash = new StringBuilder();
+        byte[] bytes = digest.digest();
+        for (int i = 0; i < 8; i++) hash.append(String.format("%02x", bytes[i]));
+        return hash.toString();
+    }
+
+    /**
+     * Internal method to delete a directory recursively
+     *
+     * @param path directory to be deleted
+     */
+
+    private static void delete(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary tessdata directory {}", path, e);
+        }
+    }
+}
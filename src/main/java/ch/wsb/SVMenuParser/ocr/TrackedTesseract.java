@@ -0,0 +1,49 @@
+package ch.wsb.SVMenuParser.ocr;
+
+import net.sourceforge.tess4j.Tesseract;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TrackedTesseract extends Tesseract {
+    private static final AtomicLong OPEN = new AtomicLong();
+    private static final AtomicLong INITIALIZED = new AtomicLong();
+
+    private boolean open;
+
+    /**
+     * Get the amount of native tesseract handles which are initialized but not yet disposed
+     *
+     * @return open handles
+     */
+
+    public static long getOpenHandles() {
+        return OPEN.get();
+    }
+
+    /**
+     * Get the amount of native tesseract handles initialized since the start of the jvm
+     *
+     * @return initialized handles
+     */
+
+    public static long getInitializedHandles() {
+        return INITIALIZED.get();
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        if (this.open) return;
+        this.open = true;
+        OPEN.incrementAndGet();
+        INITIALIZED.incrementAndGet();
+    }
+
+    @Override
+    protected void dispose() {
+        super.dispose();
+        if (!this.open) return;
+        this.open = false;
+        OPEN.decrementAndGet();
+    }
+}
@@ -0,0 +1,58 @@
+package ch.wsb.SVMenuParser.parser;
+
+import lombok.Getter;
+
+import java.util.Objects;
+
+public class CellFingerprint {
+    @Getter
+    private final long glyphHash;
+
+    @Getter
+    private final long iconHash;
+
+    @Getter
+    private final String titleHash;
+
+    /**
+     * Create a new CellFingerprint instance
+     *
+     * @param glyphHash hash of the glyph stream inside the menu cell
+     * @param iconHash  hash of the icons inside the menu cell
+     * @param titleHash hash of the preprocessed title crop (null if the title wasn't read using ocr)
+     */
+
+    public CellFingerprint(long glyphHash, long iconHash, String titleHash) {
+        this.glyphHash = glyphHash;
+        this.iconHash = iconHash;
+        this.titleHash = titleHash;
+    }
+
+    /**
+     * Create a copy of the fingerprint with a title crop hash
+     *
+     * @param titleHash hash of the preprocessed title crop
+     * @return new fingerprint instance
+     */
+
+    public CellFingerprint withTitleHash(String titleHash) {
+        return new CellFingerprint(this.glyphHash, this.iconHash, titleHash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CellFingerprint that)) return false;
+        return this.glyphHash == that.glyphHash && this.iconHash == that.iconHash && Objects.equals(this.titleHash, that.titleHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.glyphHash, this.iconHash, this.titleHash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("glyphs=%016x icons=%016x title=%s", this.glyphHash, this.iconHash, this.titleHash);
+    }
+}
@@ -0,0 +1,113 @@
+package ch.wsb.SVMenuParser.parser;
+
+import lombok.Getter;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class LayoutTemplate {
+    public static final int SIGNATURE_OPERATORS = 64;
+    public static final Set<String> PATH_OPERATORS = Set.of("m", "l", "c", "v", "y", "h", "re", "S", "s");
+
+    @Getter
+    private final String signature;
+
+    @Getter
+    private final List<Rectangle> horizontals;
+
+    @Getter
+    private final List<Rectangle> verticals;
+
+    @Getter
+    private final List<Rectangle> menus;
+
+    @Getter
+    private final double lineCoverage;
+
+    /**
+     * Create a new LayoutTemplate instance
+     *
+     * @param signature    signature of the page the grid was detected on
+     * @param horizontals  horizontal table lines
+     * @param verticals    vertical table lines
+     * @param menus        bounding boxes of the menu cells
+     * @param lineCoverage share of the sampled table line points which were dark on the rendered page
+     */
+
+    public LayoutTemplate(String signature, List<Rectangle> horizontals, List<Rectangle> verticals, List<Rectangle> menus, double lineCoverage) {
+        this.signature = signature;
+        this.horizontals = copy(horizontals);
+        this.verticals = copy(verticals);
+        this.menus = copy(menus);
+        this.lineCoverage = lineCoverage;
+    }
+
+    /**
+     * Calculate the signature of a page without processing its graphics state
+     * <p>
+     * The signature consists of the media box, the amount of stroke operators and a hash of the first
+     * {@link #SIGNATURE_OPERATORS} path operators with their operands
+     *
+     * @param page pdf page
+     * @return signature of the page
+     * @throws IOException exception thrown if the content stream can't be parsed
+     */
+
+    public static String signature(PDPage page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        int strokes = 0;
+        int hashed = 0;
+        StringBuilder operands = new StringBuilder();
+        PDFStreamParser parser = new PDFStreamParser(page);
+        Object token;
+        while ((token = parser.parseNextToken()) != null) {
+            if (token instanceof Operator operator) {
+                String name = operator.getName();
+                if (name.equals("S") || name.equals("s")) strokes++;
+                if (hashed < SIGNATURE_OPERATORS && PATH_OPERATORS.contains(name)) {
+                    digest.update((operands + name + ";").getBytes(StandardCharsets.UTF_8));
+                    hashed++;
+                }
+                operands.setLength(0);
+            } else if (token instanceof COSNumber number) {
+                //round to a tenth of a point so rewritten documents with the same layout keep their signature
+                operands.append(Math.round(number.floatValue() * 10)).append(' ');
+            }
+        }
+
+        PDRectangle mediaBox = page.getMediaBox();
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) hash.append(String.format("%02x", b));
+        return String.format("%.1f,%.1f,%.1f,%.1f;rotation=%d;strokes=%d;%s", mediaBox.getLowerLeftX(), mediaBox.getLowerLeftY(), mediaBox.getWidth(), mediaBox.getHeight(), page.getRotation(), strokes, hash);
+    }
+
+    /**
+     * Internal method to copy a list of rectangles so neither the template nor the parser can modify the other one
+     *
+     * @param rectangles rectangles to be copied
+     * @return copied rectangles
+     */
+
+    static List<Rectangle> copy(List<Rectangle> rectangles) {
+        List<Rectangle> copy = new ArrayList<>(rectangles.size());
+        for (Rectangle rectangle : rectangles) copy.add(new Rectangle(rectangle));
+        return copy;
+    }
+}
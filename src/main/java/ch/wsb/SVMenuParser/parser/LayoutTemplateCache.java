@@ -0,0 +1,103 @@
+package ch.wsb.SVMenuParser.parser;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LayoutTemplateCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static volatile LayoutTemplateCache instance = new LayoutTemplateCache(DEFAULT_CAPACITY);
+
+    @Getter
+    private final int capacity;
+
+    private final Map<String, LayoutTemplate> templates;
+
+    /**
+     * Create a new LayoutTemplateCache instance
+     *
+     * @param capacity maximum amount of layouts kept in memory
+     */
+
+    public LayoutTemplateCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must at least be one layout");
+        this.capacity = capacity;
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LayoutTemplate> eldest) {
+                return this.size() > LayoutTemplateCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the cache used by all parsers
+     *
+     * @return shared cache instance (null if grid detection shouldn't be skipped)
+     */
+
+    public static LayoutTemplateCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the cache used by all parsers
+     *
+     * @param cache new shared cache instance (null to always run the full grid detection)
+     */
+
+    public static void setInstance(LayoutTemplateCache cache) {
+        instance = cache;
+    }
+
+    /**
+     * Get the template of a page signature
+     *
+     * @param signature signature of the page
+     * @return cached template (null if the layout isn't known)
+     */
+
+    public synchronized LayoutTemplate get(String signature) {
+        return this.templates.get(signature);
+    }
+
+    /**
+     * Add a detected layout to the cache and replace an existing template with the same signature
+     *
+     * @param template template of the layout
+     */
+
+    public synchronized void put(LayoutTemplate template) {
+        this.templates.put(template.getSignature(), template);
+    }
+
+    /**
+     * Remove a template which didn't match its page anymore
+     *
+     * @param signature signature of the page
+     */
+
+    public synchronized void remove(String signature) {
+        this.templates.remove(signature);
+    }
+
+    /**
+     * Remove all templates from the cache
+     */
+
+    public synchronized void clear() {
+        this.templates.clear();
+    }
+
+    /**
+     * Get the amount of cached templates
+     *
+     * @return cached templates
+     */
+
+    public synchronized int size() {
+        return this.templates.size();
+    }
+}
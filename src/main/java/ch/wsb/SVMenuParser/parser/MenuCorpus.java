@@ -0,0 +1,179 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.menu.MenuLabel;
+import lombok.Getter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Generator for synthetic menu week PDFs which mimic the table layout of the sv-restaurant menus
+ */
+
+class MenuCorpus {
+    public static final float MARGIN = 40;
+    public static final float HEADER_OFFSET = 75;
+    public static final float FOOTER_HEIGHT = 30;
+    public static final float ICON_SIZE = 18;
+
+    private static final String[] TITLES = {"Schnitzel", "Lasagne", "Risotto", "Curry", "Gnocchi", "Burger", "Tajine", "Polenta"};
+    private static final String[] DESCRIPTIONS = {
+            "mit Pommes frites und Salat",
+            "mit Tomatensauce und Parmesan",
+            "mit Basmatireis und Gemuese",
+            "mit Kartoffelstock und Rahmsauce",
+            "mit Couscous und Joghurtdip"
+    };
+
+    public enum Layout {
+        TEXT_ONLY(5, 3, false, false),
+        OCR_REQUIRED(5, 3, true, false),
+        WITH_ICONS(5, 3, false, true),
+        LARGE_GRID(7, 8, false, true);
+
+        @Getter
+        private final int columns;
+
+        @Getter
+        private final int rows;
+
+        @Getter
+        private final boolean ocrRequired;
+
+        @Getter
+        private final boolean icons;
+
+        Layout(int columns, int rows, boolean ocrRequired, boolean icons) {
+            this.columns = columns;
+            this.rows = rows;
+            this.ocrRequired = ocrRequired;
+            this.icons = icons;
+        }
+    }
+
+    /**
+     * Generate a menu week PDF with the given layout
+     * <p>
+     * Layouts which require ocr prefix the header and the menu titles with a glyph which can't be encoded
+     * in ISO-8859-1 so the parser has to fall back to ocr just like with the real sv-restaurant fonts
+     *
+     * @param layout layout of the generated document
+     * @return bytes of the generated pdf document
+     * @throws IOException exception thrown when the document can't be written
+     */
+
+    public static byte[] generate(Layout layout) throws IOException {
+        Random random = new Random(layout.ordinal());
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth()));
+            document.addPage(page);
+            float pageWidth = page.getMediaBox().getWidth();
+            float pageHeight = page.getMediaBox().getHeight();
+
+            Map<MenuLabel, PDImageXObject> icons = new EnumMap<>(MenuLabel.class);
+            if (layout.isIcons()) {
+                for (MenuLabel label : MenuLabel.values()) {
+                    try (InputStream stream = Objects.requireNonNull(MenuCorpus.class.getClassLoader().getResourceAsStream("icons/" + label + ".png"))) {
+                        icons.put(label, LosslessFactory.createFromImage(document, ImageIO.read(stream)));
+                    }
+                }
+            }
+
+            float tableTop = pageHeight - HEADER_OFFSET;
+            float cellWidth = (pageWidth - 2 * MARGIN) / layout.getColumns();
+            float cellHeight = (tableTop - MARGIN - FOOTER_HEIGHT) / layout.getRows();
+            float fontSize = Math.min(9, cellHeight / 7);
+
+            try (PDPageContentStream stream = new PDPageContentStream(document, page)) {
+                //header has to be the first text of the page since the parser reads the week date from the first line
+                stream.beginText();
+                stream.newLineAtOffset(MARGIN, pageHeight - MARGIN);
+                if (layout.isOcrRequired()) {
+                    stream.setFont(PDType1Font.ZAPF_DINGBATS, 16);
+                    stream.showText("\u2714");
+                }
+                stream.setFont(PDType1Font.HELVETICA_BOLD, 16);
+                stream.showText("Wochenmenu 7.3. - 11.3.2022");
+                stream.endText();
+
+                stream.setLineWidth(1);
+                for (int row = 0; row < layout.getRows(); row++) {
+                    for (int column = 0; column < layout.getColumns(); column++) {
+                        float x = MARGIN + column * cellWidth;
+                        float y = tableTop - (row + 1) * cellHeight;
+                        stream.addRect(x, y, cellWidth, cellHeight);
+                        stream.stroke();
+
+                        String title = TITLES[random.nextInt(TITLES.length)];
+                        String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+                        String price = String.format("INT %d.%02d EXT %d.%02d", 7 + random.nextInt(4), 50, 10 + random.nextInt(4), 0);
+
+                        stream.beginText();
+                        stream.newLineAtOffset(x + 4, y + cellHeight - fontSize - 4);
+                        if (layout.isOcrRequired()) {
+                            stream.setFont(PDType1Font.ZAPF_DINGBATS, fontSize);
+                            stream.showText("\u2714");
+                        }
+                        stream.setFont(PDType1Font.HELVETICA_BOLD, fontSize);
+                        stream.showText(title);
+                        stream.newLineAtOffset(0, -fontSize * 1.3f);
+                        stream.setFont(PDType1Font.HELVETICA, fontSize);
+                        stream.showText("\u2014");
+                        stream.newLineAtOffset(0, -fontSize * 1.3f);
+                        stream.showText(description);
+                        stream.newLineAtOffset(0, -fontSize * 1.3f);
+                        stream.showText(price);
+                        stream.endText();
+
+                        if (!icons.isEmpty() && random.nextBoolean()) {
+                            PDImageXObject icon = icons.get(MenuLabel.values()[random.nextInt(MenuLabel.values().length)]);
+                            stream.drawImage(icon, x + cellWidth - ICON_SIZE - 4, y + 4, ICON_SIZE, ICON_SIZE);
+                        }
+                    }
+                }
+
+                //footer row which closes the last menu row
+                float footerY = tableTop - layout.getRows() * cellHeight - FOOTER_HEIGHT;
+                stream.addRect(MARGIN, footerY, pageWidth - 2 * MARGIN, FOOTER_HEIGHT);
+                stream.stroke();
+                stream.beginText();
+                stream.setFont(PDType1Font.HELVETICA, 8);
+                stream.newLineAtOffset(MARGIN + 4, footerY + 10);
+                stream.showText("Preise in CHF inkl. MwSt.");
+                stream.endText();
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Write all corpus documents to a directory
+     *
+     * @param args first argument is the output directory
+     * @throws IOException exception thrown when a document can't be written
+     */
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : "corpus");
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Failed to create directory " + directory);
+        for (Layout layout : Layout.values()) {
+            File file = new File(directory, layout.name().toLowerCase(Locale.ROOT) + ".pdf");
+            Files.write(file.toPath(), generate(layout));
+        }
+    }
+}
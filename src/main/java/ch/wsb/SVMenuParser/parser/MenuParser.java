@@ -1,110 +1,350 @@
 package ch.wsb.SVMenuParser.parser;
 
-import ch.wsb.SVMenuParser.Main;
+import ch.wsb.SVMenuParser.diagnostics.DiagnosticsWriter;
 import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.governor.GovernorPermit;
+import ch.wsb.SVMenuParser.governor.ParseGovernor;
 import ch.wsb.SVMenuParser.menu.Menu;
 import ch.wsb.SVMenuParser.menu.MenuLabel;
 import ch.wsb.SVMenuParser.menu.MenuPrice;
 import ch.wsb.SVMenuParser.menu.MenuWeek;
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParseTrace;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import ch.wsb.SVMenuParser.metrics.ParserStage;
+import ch.wsb.SVMenuParser.ocr.GlyphMappings;
+import ch.wsb.SVMenuParser.ocr.GrayRaster;
+import ch.wsb.SVMenuParser.ocr.OcrCache;
+import ch.wsb.SVMenuParser.ocr.Tessdata;
+import ch.wsb.SVMenuParser.ocr.TrackedTesseract;
+import ch.wsb.SVMenuParser.raster.RasterLease;
+import ch.wsb.SVMenuParser.raster.RasterPool;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.tess4j.ITessAPI;
 import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
 import net.sourceforge.tess4j.Word;
 import net.sourceforge.tess4j.util.ImageHelper;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.PDFTextStripperByArea;
+import org.apache.pdfbox.text.TextPosition;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Slf4j
-public class MenuParser {
+public class MenuParser implements AutoCloseable {
     public static final int BORDER_WIDTH = 3;
     public static final Color BOUNDS_COLOR = new Color(0x21F6F6);
-    public static final int MENU_SCALE_FACTOR = 1;
+    public static final File ERRORS_DIRECTORY = new File("errors");
+    public static final File ICONS_DIRECTORY = new File("icons");
+    public static final int HEADER_MIN_LINE_HEIGHT = 12;
+    public static final String HEADER_DATE_WHITELIST = "0123456789.,- ";
+    public static final Pattern HEADER_DATE_PATTERN = Pattern.compile("(\\d{1,2})\\.(\\d{1,2})\\.(\\d{4})");
+    public static final GrayRaster.Binarization TITLE_BINARIZATION = GrayRaster.Binarization.OTSU;
+    public static final boolean TITLE_DESKEW = false;
+    public static final double[] TITLE_OCR_SCALES = {0.5, 1, 2};
+    public static final float TITLE_MIN_CONFIDENCE = 80;
+    public static final Pattern TITLE_PATTERN = Pattern.compile("[\\p{L}\\d ,.'&()/+\"-]*\\p{L}{2}[\\p{L}\\d ,.'&()/+\"-]*");
+    public static final float[] PAGE_DATE_SCALES = {0.25f, 0.5f};
+    public static final int TEMPLATE_LINE_SAMPLES = 8;
+    public static final double TEMPLATE_COVERAGE_TOLERANCE = 0.05;
+    public static final double TEMPLATE_MIN_COVERAGE = 0.5;
+    public static final int TEMPLATE_LINE_THRESHOLD = 192;
+    public static final String TITLE_OCR_CONFIG = "lang=Latin;oem=" + ITessAPI.TessOcrEngineMode.OEM_LSTM_ONLY + ";psm=" + ITessAPI.TessPageSegMode.PSM_AUTO_OSD + ";dpi=300;scales=" + Arrays.toString(TITLE_OCR_SCALES) + ";confidence=" + TITLE_MIN_CONFIDENCE + ";binarization=" + TITLE_BINARIZATION + ";deskew=" + TITLE_DESKEW;
+
+    private static final Map<MenuLabel, BufferedImage> DEFAULT_ICONS = new EnumMap<>(MenuLabel.class);
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static volatile boolean titleBatchOcr = true;
 
-    @Getter
     private final BufferedImage image;
 
     @Getter
     private final PDDocument PDF;
 
     @Getter
-    private final MenuWeek menuWeek;
+    private MenuWeek menuWeek;
 
     private final List<Rectangle> horizontals = new ArrayList<>();
     private final List<Rectangle> verticals = new ArrayList<>();
     private final List<Rectangle> menus = new ArrayList<>();
     private final List<Menu> parsedMenus = new ArrayList<>();
+    private final List<CellFingerprint> fingerprints = new ArrayList<>();
     private Date weekDate;
 
+    @Getter
+    private final ParseTrace trace;
+
+    private final boolean incremental;
+    private final ParseSnapshot previous;
+
+    @Getter
+    private ParseSnapshot snapshot;
+
+    private RasterLease imageLease;
+    private Cleaner.Cleanable permitRelease;
+    private Consumer<Menu> menuListener;
+
+    /**
+     * Create a new MenuParser instance and parse the menus of the fetched document
+     *
+     * @param fetcher fetcher containing the menu week document
+     */
+
     public MenuParser(MenuFetcher fetcher) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
-        Logger.getRootLogger().setLevel(Level.OFF);
-        this.image = fetcher.getImage();
-        this.PDF = fetcher.getPDF();
+        this(fetcher, false);
+    }
 
-        long start = new Date().getTime();
+    /**
+     * Create a new MenuParser instance and parse the menus of the fetched document
+     *
+     * @param fetcher fetcher containing the menu week document
+     * @param trace   whether a trace with the stage breakdown of the parse should be recorded
+     */
+
+    public MenuParser(MenuFetcher fetcher, boolean trace) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        this(fetcher, trace ? new ParseTrace() : null, false, null);
+    }
+
+    /**
+     * Create a new MenuParser instance and parse the menus of the fetched document incrementally
+     * <p>
+     * Menu cells whose fingerprint didn't change since the previous parse aren't extracted again
+     *
+     * @param fetcher  fetcher containing the republished menu week document
+     * @param previous snapshot of the previous parse of the document (null for the first parse)
+     */
+
+    public MenuParser(MenuFetcher fetcher, ParseSnapshot previous) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        this(fetcher, null, true, previous);
+    }
+
+    private MenuParser(MenuFetcher fetcher, ParseTrace trace, boolean incremental, ParseSnapshot previous) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        this(admit(fetcher), fetcher, trace, incremental, previous);
+    }
+
+    private MenuParser(GovernorPermit permit, MenuFetcher fetcher, ParseTrace trace, boolean incremental, ParseSnapshot previous) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        this(render(fetcher, trace, permit), permit, fetcher, trace, incremental, previous);
+    }
+
+    private MenuParser(RasterLease imageLease, GovernorPermit permit, MenuFetcher fetcher, ParseTrace trace, boolean incremental, ParseSnapshot previous) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        this(imageLease.getImage(), fetcher.getPDF(), trace, incremental, previous);
+        this.imageLease = imageLease;
+        //the permit covers the page image so it's held as long as the image, parsers which are never closed release it once they are collected
+        if (permit != null) this.permitRelease = CLEANER.register(this, permit::close);
+        try {
+            this.parse();
+        } catch (Exception e) {
+            this.close();
+            closePDF(fetcher, e);
+            throw e;
+        }
+        fetcher.closePDF();
+    }
+
+    /**
+     * Parse the menus of the fetched document in a background thread and emit every menu as soon as its cell is parsed
+     * <p>
+     * The parse starts when the first subscriber subscribes and waits for admission by the {@link ParseGovernor}.
+     * The menus are emitted in the order their cells finish and the menu week is available from
+     * {@link MenuStream#getMenuWeek()} before the subscribers complete.
+     *
+     * @param fetcher    fetcher containing the menu week document
+     * @param bufferSize maximum amount of menus buffered per subscriber before the parse waits for the subscriber
+     * @return publisher of the parsed menus
+     */
+
+    public static MenuStream stream(MenuFetcher fetcher, int bufferSize) {
+        return new MenuStream(bufferSize, stream -> {
+            MenuWeek menuWeek;
+            GovernorPermit permit = admit(fetcher);
+            try (permit; RasterLease lease = render(fetcher, null, permit)) {
+                MenuParser parser = new MenuParser(lease.getImage(), fetcher.getPDF());
+                parser.menuListener = stream::publish;
+                parser.parse();
+                menuWeek = parser.getMenuWeek();
+            } finally {
+                fetcher.closePDF();
+            }
+            //release the page and the document before the subscribers are notified
+            stream.complete(menuWeek);
+        });
+    }
+
+    /**
+     * Set whether the titles of all cells of a page should be recognized with a single tesseract call
+     * <p>
+     * The title crops are stitched into one image at the lowest scale of {@link #TITLE_OCR_SCALES}.
+     * Titles which fail the checks are still escalated on their own.
+     *
+     * @param enabled whether batch ocr should be used (enabled by default)
+     */
+
+    public static void setTitleBatchOcr(boolean enabled) {
+        titleBatchOcr = enabled;
+    }
+
+    /**
+     * Get whether the titles of all cells of a page are recognized with a single tesseract call
+     *
+     * @return whether batch ocr is used
+     */
+
+    public static boolean isTitleBatchOcr() {
+        return titleBatchOcr;
+    }
 
+    /**
+     * Create a new MenuParser instance without parsing the document
+     *
+     * @param image rendered image of the first pdf page
+     * @param PDF   document to be parsed
+     */
+
+    MenuParser(BufferedImage image, PDDocument PDF) {
+        this(image, PDF, null);
+    }
+
+    /**
+     * Create a new MenuParser instance without parsing the document
+     *
+     * @param image rendered image of the first pdf page
+     * @param PDF   document to be parsed
+     * @param trace trace of the parse (null if tracing is disabled)
+     */
+
+    MenuParser(BufferedImage image, PDDocument PDF, ParseTrace trace) {
+        this(image, PDF, trace, false, null);
+    }
+
+    /**
+     * Create a new MenuParser instance without parsing the document
+     *
+     * @param image       rendered image of the first pdf page
+     * @param PDF         document to be parsed
+     * @param trace       trace of the parse (null if tracing is disabled)
+     * @param incremental whether cell fingerprints should be recorded to reuse unchanged menus
+     * @param previous    snapshot of the previous parse of the document (null if no menus should be reused)
+     */
+
+    MenuParser(BufferedImage image, PDDocument PDF, ParseTrace trace, boolean incremental, ParseSnapshot previous) {
+        Logger.getRootLogger().setLevel(Level.OFF);
+        this.image = image;
+        this.PDF = PDF;
+        this.trace = trace;
+        this.incremental = incremental;
+        this.previous = previous;
         log.info("Initialized new MenuParser");
+    }
 
-        this.getLines();
-        log.debug("Successfully calculated table border lines");
-        this.calculateMenuBounds();
-        log.debug("Successfully calculated menu bounding boxes");
+    /**
+     * Method to parse all menus of the document into a menu week
+     */
+
+    void parse() throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        long allocationStart = this.trace != null ? ParseTrace.currentThreadAllocatedBytes() : 0;
+
+        try {
+            long gridStart = System.nanoTime();
+            this.detectGrid();
+            log.debug("Successfully calculated menu bounding boxes");
+            this.record(ParserStage.GRID_DETECTION, gridStart);
+            if (this.incremental) this.fingerprintCells();
+
+            //check if the pdf can be fully parsed with pdfbox text stripper
+            if (this.readWeekDate()) {
+                if (this.trace != null) this.trace.setPath(ParseTrace.Path.TEXT);
+                this.readMenus();
+            } else {
+                Metrics.increment(ParserCounter.OCR_FALLBACK);
+                if (this.trace != null) this.trace.setPath(ParseTrace.Path.OCR);
+                this.ocrMenus();
+            }
 
+            //create menu week
+            this.menuWeek = new MenuWeek(this.parsedMenus);
+            if (this.incremental) this.snapshot = this.createSnapshot();
+        } catch (Exception e) {
+            Metrics.increment(ParserCounter.PARSE_FAILURE);
+            throw e;
+        }
+
+        long duration = this.record(ParserStage.PARSE, start);
+        if (this.trace != null) {
+            this.trace.addAllocatedBytes(ParseTrace.currentThreadAllocatedBytes() - allocationStart);
+            this.trace.finish();
+        }
+        log.info("Successfully parsed {} menus in {}ms", this.menuWeek.getMenus().size(), TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+
+    /**
+     * Method to extract the menu week date from the pdf text
+     *
+     * @return whether the pdf text can be parsed without ocr
+     */
+
+    boolean readWeekDate() throws IOException, ParseException {
+        long start = System.nanoTime();
         PDFTextStripper textStripper = new PDFTextStripper();
         String headerText = textStripper.getText(this.PDF).split("\n")[0];
         log.debug("Successfully extracted text from the pdf");
 
-        //check if the pdf can be fully parsed with pdfbox text stripper
-        if (StandardCharsets.ISO_8859_1.newEncoder().canEncode(headerText)) {
-            //parse header to menu week
-            Pattern weekDatePattern = Pattern.compile("[0-9]{1,2}.[0-9]{1,2}. - [0-9]{1,2}.[0-9]{1,2}.[0-9]{4}$");
-            Matcher headerMatcher = weekDatePattern.matcher(headerText);
-            MatchResult headerResult = headerMatcher.results().toList().get(0);
-            this.weekDate = new SimpleDateFormat("dd-MM-yyyy").parse(headerResult.group().split("- ")[1].replace(".", "-"));
-            log.debug("Successfully extracted menu week date from pdf text");
-
-            this.readMenus();
-        } else this.ocrMenus();
-        fetcher.closePDF();
-
-        //create menu week
-        this.menuWeek = new MenuWeek(this.parsedMenus);
-
-        long end = new Date().getTime();
-        log.info("Successfully parsed {} menus in {}ms", this.menuWeek.getMenus().size(), end - start);
+        if (!StandardCharsets.ISO_8859_1.newEncoder().canEncode(headerText)) {
+            this.record(ParserStage.HEADER_EXTRACTION, start);
+            return false;
+        }
 
+        //parse header to menu week
+        Pattern weekDatePattern = Pattern.compile("[0-9]{1,2}.[0-9]{1,2}. - [0-9]{1,2}.[0-9]{1,2}.[0-9]{4}$");
+        Matcher headerMatcher = weekDatePattern.matcher(headerText);
+        MatchResult headerResult = headerMatcher.results().toList().get(0);
+        this.weekDate = new SimpleDateFormat("dd-MM-yyyy").parse(headerResult.group().split("- ")[1].replace(".", "-"));
+        log.debug("Successfully extracted menu week date from pdf text");
+        this.record(ParserStage.HEADER_EXTRACTION, start);
+        return true;
     }
 
     /**
      * Method to sort out the horizontal and vertical table lines
      */
 
-    private void getLines() throws IOException {
+    void getLines() throws IOException {
+        this.horizontals.clear();
+        this.verticals.clear();
         List<Rectangle> rectangles = new ArrayList<>();
         List<Integer> xCoordinates = new ArrayList<>();
         List<Integer> yCoordinates = new ArrayList<>();
+        long strokeStart = System.nanoTime();
         PDFStrokeParser strokeParser = new PDFStrokeParser(this.PDF.getPage(0));
+        this.record(ParserStage.STROKE_PARSE, strokeStart);
 
         int smallestX = -1;
         int smallestY = -1;
@@ -149,11 +389,103 @@ public class MenuParser {
         this.verticals.sort(Comparator.comparingInt(o -> o.x));
     }
 
+    /**
+     * Method to get the table lines and menu bounding boxes from the layout template cache or detect them if the layout is unknown
+     * <p>
+     * A cached template is only used if its table lines are as dark on the rendered page as they were when the template was detected
+     *
+     * @throws IOException exception thrown if the pdf page can't be processed
+     */
+
+    void detectGrid() throws IOException {
+        LayoutTemplateCache cache = LayoutTemplateCache.getInstance();
+        String signature = cache != null ? LayoutTemplate.signature(this.PDF.getPage(0)) : null;
+        LayoutTemplate template = cache != null ? cache.get(signature) : null;
+
+        if (template != null) {
+            double coverage = this.getLineCoverage(template.getHorizontals(), template.getVerticals());
+            if (coverage >= template.getLineCoverage() - TEMPLATE_COVERAGE_TOLERANCE) {
+                this.horizontals.clear();
+                this.horizontals.addAll(LayoutTemplate.copy(template.getHorizontals()));
+                this.verticals.clear();
+                this.verticals.addAll(LayoutTemplate.copy(template.getVerticals()));
+                this.menus.clear();
+                this.menus.addAll(LayoutTemplate.copy(template.getMenus()));
+                Metrics.increment(ParserCounter.LAYOUT_TEMPLATE_HIT);
+                return;
+            }
+            log.debug("Layout template {} covers only {} of the table lines, falling back to grid detection", signature, coverage);
+            Metrics.increment(ParserCounter.LAYOUT_TEMPLATE_REJECTED);
+            cache.remove(signature);
+        } else if (cache != null) Metrics.increment(ParserCounter.LAYOUT_TEMPLATE_MISS);
+
+        this.getLines();
+        log.debug("Successfully calculated table border lines");
+        this.calculateMenuBounds();
+        if (cache == null) return;
+        //layouts whose lines can't be found on the rendered page can't be verified and are always detected
+        double coverage = this.getLineCoverage(this.horizontals, this.verticals);
+        if (coverage >= TEMPLATE_MIN_COVERAGE) cache.put(new LayoutTemplate(signature, this.horizontals, this.verticals, this.menus, coverage));
+        else log.debug("Not caching layout {} since only {} of its table lines were found on the page", signature, coverage);
+    }
+
+    /**
+     * Method to get the share of evenly spaced points on the table lines which are dark on the rendered page
+     *
+     * @param horizontals horizontal table lines
+     * @param verticals   vertical table lines
+     * @return share between 0 and 1
+     */
+
+    private double getLineCoverage(List<Rectangle> horizontals, List<Rectangle> verticals) {
+        int samples = 0;
+        int dark = 0;
+        for (Rectangle line : horizontals) {
+            for (int i = 1; i <= TEMPLATE_LINE_SAMPLES; i++) {
+                int x = line.x + line.width * i / (TEMPLATE_LINE_SAMPLES + 1);
+                samples++;
+                if (this.isLineDark(x, line.y, false)) dark++;
+            }
+        }
+        for (Rectangle line : verticals) {
+            for (int i = 1; i <= TEMPLATE_LINE_SAMPLES; i++) {
+                int y = line.y + line.height * i / (TEMPLATE_LINE_SAMPLES + 1);
+                samples++;
+                if (this.isLineDark(line.x, y, true)) dark++;
+            }
+        }
+        return samples == 0 ? 0 : (double) dark / samples;
+    }
+
+    /**
+     * Method to check whether a table line passes through a point of the page
+     *
+     * @param x        x-coordinate on the page
+     * @param y        y-coordinate on the page
+     * @param vertical whether the line is vertical and should be searched for horizontally
+     * @return whether a dark pixel lies within one page unit across the line
+     */
+
+    private boolean isLineDark(int x, int y, boolean vertical) {
+        int centerX = x * MenuFetcher.IMAGE_SCALE_FACTOR;
+        int centerY = y * MenuFetcher.IMAGE_SCALE_FACTOR;
+        for (int offset = -MenuFetcher.IMAGE_SCALE_FACTOR; offset <= MenuFetcher.IMAGE_SCALE_FACTOR; offset++) {
+            int pixelX = vertical ? centerX + offset : centerX;
+            int pixelY = vertical ? centerY : centerY + offset;
+            if (pixelX < 0 || pixelY < 0 || pixelX >= this.image.getWidth() || pixelY >= this.image.getHeight()) continue;
+            int rgb = this.image.getRGB(pixelX, pixelY);
+            int gray = (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 150 + (rgb & 0xff) * 29) >> 8;
+            if (gray < TEMPLATE_LINE_THRESHOLD) return true;
+        }
+        return false;
+    }
+
     /**
      * Method to calculate the menu bounding boxes using the intersection points of the table lines
      */
 
-    private void calculateMenuBounds() {
+    void calculateMenuBounds() {
+        this.menus.clear();
         int[][] xPoints = new int[this.horizontals.size() - 1][2]; //points lying on the x-axis
         int[][] yPoints = new int[this.verticals.size() - 1][2]; //points lying on the y-axis
 
@@ -181,8 +513,85 @@ public class MenuParser {
         }
     }
 
+    /**
+     * Method to calculate the glyph and icon fingerprint of every menu cell
+     *
+     * @throws IOException exception thrown if the pdf page can't be processed
+     */
+
+    void fingerprintCells() throws IOException {
+        long start = System.nanoTime();
+        this.fingerprints.clear();
+        List<Rectangle> regions = new ArrayList<>();
+        for (Rectangle boundingBox : this.menus) regions.add(this.downscaleRectangle(boundingBox));
+        PDFGlyphHasher glyphHasher = new PDFGlyphHasher(regions, this.PDF.getPage(0));
+        PDFImageParser imageParser = new PDFImageParser();
+        imageParser.processPage(this.PDF.getPage(0));
+
+        for (int i = 0; i < this.menus.size(); i++) {
+            long iconHash = 0;
+            for (Map.Entry<Rectangle, BufferedImage> icon : imageParser.getImages().entrySet()) {
+                //sum the icon hashes since the order of the images isn't stable
+                if (this.menus.get(i).intersects(this.scaleImageBounds(icon.getKey()))) iconHash += this.hashIcon(icon.getKey(), icon.getValue());
+            }
+            this.fingerprints.add(new CellFingerprint(glyphHasher.getHash(i), iconHash, null));
+        }
+        this.record(ParserStage.FINGERPRINT, start);
+    }
+
+    /**
+     * Internal method to get the menu of the previous parse if the menu cell didn't change
+     *
+     * @param index index of the menu cell
+     * @return previously parsed menu (null if the cell has to be parsed)
+     */
+
+    private Menu getReusableMenu(int index) {
+        if (!this.incremental || this.previous == null) return null;
+        Menu menu = this.previous.getMenu(this.weekDate, this.menus.size(), index, this.menus.get(index), this.fingerprints.get(index));
+        if (menu != null) {
+            Metrics.increment(ParserCounter.CELL_REUSED);
+            log.debug("Reusing unchanged menu {} of the previous parse", index);
+        }
+        return menu;
+    }
+
+    /**
+     * Internal method to create a snapshot of the parsed menu cells with their fingerprints
+     *
+     * @return snapshot of the parse
+     */
+
+    private ParseSnapshot createSnapshot() {
+        List<ParseSnapshot.Cell> cells = new ArrayList<>();
+        for (int i = 0; i < this.menus.size(); i++) {
+            cells.add(new ParseSnapshot.Cell(this.menus.get(i), this.fingerprints.get(i), this.parsedMenus.get(i)));
+        }
+        return new ParseSnapshot(this.weekDate, cells);
+    }
+
+    /**
+     * Internal method to calculate a content hash of an icon
+     *
+     * @param bounds position of the icon on the pdf page
+     * @param icon   image of the icon
+     * @return hash of the position and the sampled pixels
+     */
+
+    private long hashIcon(Rectangle bounds, BufferedImage icon) {
+        long hash = bounds.hashCode();
+        int stepX = Math.max(1, icon.getWidth() / 32);
+        int stepY = Math.max(1, icon.getHeight() / 32);
+        for (int y = 0; y < icon.getHeight(); y += stepY) {
+            for (int x = 0; x < icon.getWidth(); x += stepX) hash = hash * 31 + icon.getRGB(x, y);
+        }
+        return hash;
+    }
+
     /**
      * Method to ocr the menus of a week multithreaded
+     * <p>
+     * If a cell fails, the first failure is only thrown after all other cell threads finished
      *
      * @throws ExecutionException   exception thrown when the result of a thread resulted in an exception
      * @throws InterruptedException exception thrown if a running thread gets interrupted
@@ -192,14 +601,199 @@ public class MenuParser {
      * @throws RuntimeException
      */
 
-    private void ocrMenus() throws ExecutionException, InterruptedException, IOException, URISyntaxException, ParseException, RuntimeException {
-        float downscaleFactor = 0.25f;
+    void ocrMenus() throws ExecutionException, InterruptedException, IOException, URISyntaxException, ParseException, RuntimeException {
+        this.parsedMenus.clear();
+        long headerStart = System.nanoTime();
+
+        //extract menu week date from the header above the table and only fall back to the full page if that fails
+        this.weekDate = this.ocrHeaderWeekDate();
+        if (this.weekDate == null) {
+            log.debug("No week date found above the table, retrying with full page ocr");
+            Metrics.increment(ParserCounter.HEADER_OCR_RETRY);
+            this.weekDate = this.ocrPageWeekDate();
+        }
+        log.debug("Successfully extracted menu week date from pdf text gained through ocr");
+        this.record(ParserStage.HEADER_EXTRACTION, headerStart);
+
+        log.info("Started parsing menus using ocr");
+        Menu[] reused = new Menu[this.menus.size()];
+        List<CompletableFuture<String[]>> futures = new ArrayList<>();
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        TitleBatch batch = titleBatchOcr ? new TitleBatch(this.menus.size(), this::recognizeTitleBatch) : null;
+
+        for (Rectangle boundingBox : this.menus) {
+            CompletableFuture<String[]> future = new CompletableFuture<>();
+            futures.add(future);
+            int index = this.menus.indexOf(boundingBox);
+            future.whenComplete((content, exception) -> completed.add(index));
+            Thread thread = new Thread(() -> {
+                try {
+                    long cellStart = System.nanoTime();
+                    long allocationStart = this.trace != null ? ParseTrace.currentThreadAllocatedBytes() : 0;
+                    PDFCoordinateExtractor coordinateExtractor = new PDFCoordinateExtractor(this.downscaleRectangle(boundingBox), this.PDF.getPage(0));
+                    Rectangle titleBounds = this.getTitleBounds(coordinateExtractor, boundingBox);
+                    GrayRaster titleRaster = this.preprocessTitle(this.getTitleCrop(titleBounds));
+                    String titleKey = this.incremental || OcrCache.getInstance() != null ? OcrCache.key(titleRaster, TITLE_OCR_CONFIG) : null;
+
+                    //skip the ocr if neither the glyphs nor the title crop changed since the previous parse
+                    if (this.incremental) {
+                        this.fingerprints.set(index, this.fingerprints.get(index).withTitleHash(titleKey));
+                        reused[index] = this.getReusableMenu(index);
+                        if (reused[index] != null) {
+                            future.complete(null);
+                            return;
+                        }
+                    }
+
+                    String[] content = ocrMenu(boundingBox, titleBounds, coordinateExtractor.getUnparsableGlyphs(), titleRaster, titleKey, batch);
+                    Metrics.recordSince(ParserStage.CELL_OCR, cellStart);
+                    if (this.trace != null) {
+                        long allocated = ParseTrace.currentThreadAllocatedBytes() - allocationStart;
+                        this.trace.addCell(index, boundingBox, System.nanoTime() - cellStart, content[0].length(), content[1].length(), allocated);
+                    }
+                    future.complete(content);
+                } catch (Throwable t) {
+                    //errors have to complete the future as well, otherwise the parse waits for the cell forever
+                    log.error("Failed to ocr menu", t);
+                    future.completeExceptionally(t);
+                } finally {
+                    //let the other cells of the batch continue without this one (does nothing if the cell already took part)
+                    if (batch != null) batch.skip(index);
+                }
+            }, "MenuOCR-" + index);
+            thread.start();
+        }
+
+        //parse the cells in the order their ocr finishes so fast cells can be emitted while slow ones are still running
+        Menu[] menus = new Menu[this.menus.size()];
+        Exception failure = null;
+        for (int i = 0; i < this.menus.size(); i++) {
+            int index = completed.take();
+            //keep waiting for the other cells after a failure since the caller releases the page and the document they still read
+            if (failure != null) continue;
+            try {
+                String[] content = futures.get(index).get();
+                menus[index] = content == null ? reused[index] : this.parseMenu(content[0], content[1], this.menus.get(index));
+                this.emit(menus[index]);
+            } catch (ExecutionException | IOException | RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure instanceof ExecutionException e) throw e;
+        if (failure instanceof IOException e) throw e;
+        if (failure instanceof RuntimeException e) throw e;
+        this.parsedMenus.addAll(Arrays.asList(menus));
+
+        GlyphMappings glyphMappings = GlyphMappings.getInstance();
+        if (glyphMappings != null) glyphMappings.flush();
+    }
+
+    /**
+     * Method to ocr the week date line by line in the band between the page top and the first table line
+     *
+     * @return week date (null if no valid date was found)
+     * @throws IOException          exception thrown if the tessdata can't be extracted
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     */
+
+    Date ocrHeaderWeekDate() throws IOException, URISyntaxException, InterruptedException {
+        if (this.horizontals.isEmpty()) return null;
+        int bandHeight = Math.min(this.image.getHeight(), this.horizontals.get(0).y * MenuFetcher.IMAGE_SCALE_FACTOR);
+        if (bandHeight < HEADER_MIN_LINE_HEIGHT) return null;
+
+        GrayRaster band = GrayRaster.fromImage(this.image, new Rectangle(0, 0, this.image.getWidth(), bandHeight));
+        List<Rectangle> lines = band.findTextLines(band.otsuThreshold(), HEADER_MIN_LINE_HEIGHT, 6);
+
+        Tesseract tesseract = this.createTesseractInstance();
+        tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_SINGLE_LINE);
+        tesseract.setTessVariable("tessedit_char_whitelist", HEADER_DATE_WHITELIST);
+
+        try (GovernorPermit ignored = acquireOcrSlot()) {
+            for (Rectangle line : lines) {
+                GrayRaster lineRaster = band.crop(line);
+                try {
+                    String text = tesseract.doOCR(lineRaster.getWidth(), lineRaster.getHeight(), lineRaster.toBuffer(), null, 8);
+                    Date date = parseHeaderDate(text);
+                    if (date != null) return date;
+                } catch (TesseractException e) {
+                    log.debug("Failed to ocr header line {}", line, e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method to get the last valid week date in an ocr text of a header line
+     *
+     * @param text ocr text
+     * @return parsed date (null if the text contains no valid date)
+     */
+
+    static Date parseHeaderDate(String text) {
+        Matcher matcher = HEADER_DATE_PATTERN.matcher(text.replace(" ", "").replace(",", "."));
+        SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+        format.setLenient(false);
+        Date date = null;
+        while (matcher.find()) {
+            int year = Integer.parseInt(matcher.group(3));
+            if (year < 2000 || year > 2100) continue;
+            try {
+                date = format.parse(matcher.group());
+            } catch (ParseException ignored) {
+            }
+        }
+        return date;
+    }
+
+    /**
+     * Method to ocr the week date using a layout analysis of the whole page
+     * <p>
+     * The page is analyzed at the lowest scale of {@link #PAGE_DATE_SCALES} first and only at the next one if no date was found
+     *
+     * @return week date
+     * @throws IOException          exception thrown if the tessdata can't be extracted
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws ParseException       exception thrown if the found date text is invalid
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     * @throws RuntimeException     exception thrown if no date text was found
+     */
+
+    private Date ocrPageWeekDate() throws IOException, URISyntaxException, ParseException, InterruptedException, RuntimeException {
+        for (int i = 0; i < PAGE_DATE_SCALES.length - 1; i++) {
+            try {
+                Date date = this.ocrPageWeekDate(PAGE_DATE_SCALES[i], false);
+                if (date != null) return date;
+            } catch (ParseException e) {
+                log.debug("Invalid week date text at scale {}", PAGE_DATE_SCALES[i], e);
+            }
+            Metrics.increment(ParserCounter.OCR_ESCALATION);
+        }
+        return this.ocrPageWeekDate(PAGE_DATE_SCALES[PAGE_DATE_SCALES.length - 1], true);
+    }
+
+    /**
+     * Method to ocr the week date using a layout analysis of the whole page at a given scale
+     *
+     * @param downscaleFactor scale of the page relative to the rendered page
+     * @param last            whether no larger scale is tried afterwards
+     * @return week date (null if no date text was found and it isn't the last scale)
+     * @throws IOException          exception thrown if the tessdata can't be extracted
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws ParseException       exception thrown if the found date text is invalid
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     * @throws RuntimeException     exception thrown if no date text was found at the last scale
+     */
 
-        //extract menu week date
-        int scaledImageWidth = (int) (this.image.getWidth() * downscaleFactor);
-        int scaledImageHeight = (int) (this.image.getHeight() * downscaleFactor);
-        BufferedImage scaledImage = ImageHelper.getScaledInstance(this.image, scaledImageWidth, scaledImageHeight);
-        List<Word> textlines = this.createTesseractInstance().getWords(scaledImage, ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
+    private Date ocrPageWeekDate(float downscaleFactor, boolean last) throws IOException, URISyntaxException, ParseException, InterruptedException, RuntimeException {
+        Rectangle pageBounds = new Rectangle(0, 0, this.image.getWidth(), this.image.getHeight());
+        BufferedImage scaledImage = GrayRaster.fromImage(this.image, pageBounds).scale(downscaleFactor).toImage();
+        Tesseract tesseract = this.createTesseractInstance();
+        List<Word> textlines;
+        try (GovernorPermit ignored = acquireOcrSlot()) {
+            textlines = tesseract.getWords(scaledImage, ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
+        }
         Word headerWord = null;
 
         List<Word> headerWords = new ArrayList<>();
@@ -211,7 +805,10 @@ public class MenuParser {
                 headerWord = textline;
         }
 
-        assert headerWord != null;
+        if (headerWord == null) {
+            if (!last) return null;
+            throw new RuntimeException("No header text detected in provided pdf document");
+        }
 
         for (Word textline : textlines) {
             Rectangle highestBounds = headerWord.getBoundingBox();
@@ -249,68 +846,42 @@ public class MenuParser {
             }
         }
 
+        if (dateText == null && !last) return null;
+
         if (highestCount == 0 && dateText == null) {
-            BufferedImage copy = this.getImageCopy();
-            Graphics2D graphics = (Graphics2D) copy.getGraphics();
-            graphics.setStroke(new BasicStroke(MenuParser.BORDER_WIDTH));
-            graphics.setColor(MenuParser.BOUNDS_COLOR);
+            List<Rectangle> wordBounds = new ArrayList<>();
+            Rectangle region = null;
             for (Word word : headerWords) {
                 int scaledWidth = (int) (word.getBoundingBox().width * (1 / downscaleFactor));
                 int scaledHeight = (int) (word.getBoundingBox().height * (1 / downscaleFactor));
                 int scaledX = (int) (word.getBoundingBox().x * (1 / downscaleFactor));
                 int scaledY = (int) (word.getBoundingBox().y * (1 / downscaleFactor));
-                graphics.draw(new Rectangle(scaledX, scaledY, scaledWidth, scaledHeight));
-            }
-            File file = new File("errors/nodate-" + new Date().getTime() + ".png");
-            if (!file.exists()) {
-                if (file.mkdirs()) ImageIO.write(copy, "png", file);
+                Rectangle bounds = new Rectangle(scaledX, scaledY, scaledWidth, scaledHeight);
+                wordBounds.add(bounds);
+                if (region == null) region = new Rectangle(bounds);
+                else region.add(bounds);
             }
+            if (region == null) region = new Rectangle(0, 0, this.image.getWidth(), this.image.getHeight() / 5);
+            region.grow(20, 20);
+            this.saveDiagnostic(ERRORS_DIRECTORY, "nodate", region, wordBounds, Map.of("headerText", headerText.toString()));
         }
 
         if (dateText == null) throw new RuntimeException("No week date text detected in provided pdf document");
-        this.weekDate = new SimpleDateFormat("dd.MM.yyyy").parse(dateText);
-        log.debug("Successfully extracted menu week date from pdf text gained through ocr");
-
-        log.info("Started parsing menus using ocr");
-        List<Map.Entry<Rectangle, String[]>> menus = new ArrayList<>();
-        List<CompletableFuture<Map.Entry<Rectangle, String[]>>> futures = new ArrayList<>();
-
-        for (Rectangle boundingBox : this.menus) {
-            CompletableFuture<Map.Entry<Rectangle, String[]>> future = new CompletableFuture();
-            futures.add(future);
-            Thread thread = new Thread(() -> {
-                try {
-                    future.complete(Map.entry(boundingBox, ocrMenu(boundingBox)));
-                } catch (IOException | URISyntaxException e) {
-                    System.err.println("Failed to ocr menu!");
-                    e.printStackTrace();
-                }
-            }, "MenuOCR-" + this.menus.indexOf(boundingBox));
-            thread.start();
-        }
-
-        for (CompletableFuture<Map.Entry<Rectangle, String[]>> future : futures) {
-            menus.add(future.get());
-        }
-
-        for (Map.Entry<Rectangle, String[]> menu : menus) {
-            this.parseMenu(menu.getValue()[0], menu.getValue()[1], menu.getKey());
-        }
+        return new SimpleDateFormat("dd.MM.yyyy").parse(dateText);
     }
 
     /**
-     * Method to ocr a menu to get its content
+     * Method to get the bounds of the title of a menu which can only be read using ocr
      *
-     * @param boundingBox bounding box of the menu
-     * @return content of the menu
-     * @throws IOException        exception thrown if the pdf page to extract text is not found
-     * @throws URISyntaxException exception thrown if no tessdata was found
+     * @param coordinateExtractor extractor of the words inside the menu
+     * @param boundingBox         bounding box of the menu
+     * @return bounds of the title on the page
+     * @throws RuntimeException exception thrown if no title was found
      */
 
-    private String[] ocrMenu(Rectangle boundingBox) throws IOException, URISyntaxException {
+    private Rectangle getTitleBounds(PDFCoordinateExtractor coordinateExtractor, Rectangle boundingBox) throws RuntimeException {
         Rectangle titleBounds = null;
 
-        PDFCoordinateExtractor coordinateExtractor = new PDFCoordinateExtractor(this.downscaleRectangle(boundingBox), this.PDF.getPage(0));
         for (Map.Entry<String, Rectangle> entry : coordinateExtractor.getUnparsableWords()) {
             int entryX = entry.getValue().x * MenuFetcher.IMAGE_SCALE_FACTOR;
             int entryY = (entry.getValue().y - entry.getValue().height) * MenuFetcher.IMAGE_SCALE_FACTOR;
@@ -320,30 +891,60 @@ public class MenuParser {
             if (titleBounds == null) titleBounds = entryBounds;
             else titleBounds.add(entryBounds);
         }
-        assert titleBounds != null;
 
         if (titleBounds == null) {
-            log.info(String.valueOf(coordinateExtractor.getUnparsableWords().size()));
-            BufferedImage copy = this.getImageCopy();
-            Graphics2D graphics = (Graphics2D) copy.getGraphics();
-            graphics.setStroke(new BasicStroke(MenuParser.BORDER_WIDTH));
-            graphics.setColor(MenuParser.BOUNDS_COLOR);
-            graphics.draw(boundingBox);
-            File file = new File("errors/notitle-" + new Date().getTime() + ".png");
-            if(!file.exists()) {
-                if(file.mkdirs())ImageIO.write(copy, "png", file);
-            }
+            int index = this.menus.indexOf(boundingBox);
+            this.saveDiagnostic(ERRORS_DIRECTORY, "notitle", boundingBox, List.of(boundingBox), Map.of("menu", index, "words", coordinateExtractor.getWords().size()));
+            throw new RuntimeException("No title text detected in menu " + index);
         }
+        return titleBounds;
+    }
 
-        BufferedImage menuImage = this.image.getSubimage(titleBounds.x - 10, titleBounds.y - 10, titleBounds.width + 20, titleBounds.height + 20);
-        int scaledWidth = menuImage.getWidth() * MenuParser.MENU_SCALE_FACTOR;
-        int scaledHeight = menuImage.getHeight() * MenuParser.MENU_SCALE_FACTOR;
+    /**
+     * Method to ocr a menu to get its content
+     *
+     * @param boundingBox bounding box of the menu
+     * @param titleBounds bounds of the title on the page
+     * @param titleGlyphs glyphs of the title words
+     * @param titleRaster preprocessed title crop
+     * @param cacheKey    ocr cache key of the title crop (null if caching is disabled)
+     * @param batch       batch recognizing the titles of all cells at once (null if every title is recognized on its own)
+     * @return content of the menu
+     * @throws IOException          exception thrown if the pdf page to extract text is not found
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for the batch
+     */
 
-        List<Word> textlines = this.createTesseractInstance().getWords(ImageHelper.getScaledInstance(menuImage, scaledWidth, scaledHeight), ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
-        StringBuilder titleText = new StringBuilder();
-        for (Word textline : textlines) {
-            String replacedText = textline.getText().replace("\u2014", "").replace("-\n", "").replace("\n", " ").replace("\r", "\n");
-            titleText.append(replacedText);
+    String[] ocrMenu(Rectangle boundingBox, Rectangle titleBounds, List<List<TextPosition>> titleGlyphs, GrayRaster titleRaster, String cacheKey, TitleBatch batch) throws IOException, URISyntaxException, InterruptedException {
+        //decode the title straight from the pdf if all glyphs of its font were learned from previous ocr results
+        GlyphMappings glyphMappings = GlyphMappings.getInstance();
+        String menuTitle = glyphMappings != null ? glyphMappings.decode(titleGlyphs) : null;
+        if (menuTitle != null) Metrics.increment(ParserCounter.GLYPH_MAP_HIT);
+
+        OcrCache cache = OcrCache.getInstance();
+        if (menuTitle == null && cache != null) {
+            menuTitle = cache.get(cacheKey);
+            if (menuTitle != null) Metrics.increment(ParserCounter.OCR_CACHE_HIT);
+        }
+
+        if (menuTitle != null) {
+            if (batch != null) batch.skip(this.menus.indexOf(boundingBox));
+        } else {
+            List<Word> batchLines = null;
+            if (batch != null) {
+                GrayRaster batchRaster = this.getTitleRaster(this.getTitleCrop(titleBounds), TITLE_OCR_SCALES[0], titleRaster);
+                batchLines = batch.submit(this.menus.indexOf(boundingBox), batchRaster);
+            }
+            RecognizedTitle recognized = this.ocrTitle(boundingBox, titleBounds, titleRaster, batchLines);
+            menuTitle = recognized.title;
+            if (cache != null) Metrics.increment(ParserCounter.OCR_CACHE_MISS);
+            //only remember titles which passed the checks so a misread doesn't get served from the cache or the glyph mappings
+            if (recognized.accepted) {
+                if (cache != null) cache.put(cacheKey, menuTitle);
+                if (glyphMappings != null && !glyphMappings.learn(titleGlyphs, menuTitle)) {
+                    log.debug("Couldn't align ocr title of menu {} with its glyphs", this.menus.indexOf(boundingBox));
+                }
+            }
         }
 
         //calculate content bounding box
@@ -357,13 +958,177 @@ public class MenuParser {
         areaStripper.addRegion("menu", scaled);
         areaStripper.extractRegions(this.PDF.getPage(0));
 
-        String menuTitle = titleText.toString();
         String menuContent = areaStripper.getTextForRegion("menu").replace("\u2014", "").replace("-\n", " ").replace("\n", " ").replace("\r", "");
 
         //return string array with menu title and menu content
         return new String[]{menuTitle, menuContent};
     }
 
+    /**
+     * Method to convert a title crop of the page into a binarized grayscale raster for tesseract
+     *
+     * @param cropBounds bounds of the title crop on the page
+     * @return preprocessed raster
+     */
+
+    GrayRaster preprocessTitle(Rectangle cropBounds) {
+        return this.preprocessTitle(GrayRaster.fromImage(this.image, cropBounds));
+    }
+
+    /**
+     * Method to binarize a grayscale title crop for tesseract
+     *
+     * @param raster grayscale title crop
+     * @return preprocessed raster
+     */
+
+    private GrayRaster preprocessTitle(GrayRaster raster) {
+        GrayRaster binarized = raster.binarize(TITLE_BINARIZATION);
+        return TITLE_DESKEW ? binarized.deskew(3, 0.5) : binarized;
+    }
+
+    /**
+     * Method to ocr the title of a menu starting at the lowest resolution of {@link #TITLE_OCR_SCALES}
+     * <p>
+     * The title is only recognized again at the next resolution if a text line has a lower confidence than
+     * {@link #TITLE_MIN_CONFIDENCE} or the text doesn't match {@link #TITLE_PATTERN}. Resolutions above the
+     * rendered page are rendered again from the pdf.
+     *
+     * @param boundingBox bounding box of the menu
+     * @param titleBounds bounds of the title on the page
+     * @param titleRaster preprocessed title crop at the resolution of the rendered page
+     * @param batchLines  text lines of the lowest resolution recognized by a {@link TitleBatch} (null if no batch was used or its recognition failed)
+     * @return recognized title (the most confident one which isn't accepted if no resolution passed the checks)
+     * @throws IOException          exception thrown if the title can't be rendered
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     */
+
+    private RecognizedTitle ocrTitle(Rectangle boundingBox, Rectangle titleBounds, GrayRaster titleRaster, List<Word> batchLines) throws IOException, URISyntaxException, InterruptedException {
+        int index = this.menus.indexOf(boundingBox);
+        Rectangle cropBounds = this.getTitleCrop(titleBounds);
+        String bestTitle = null;
+        float bestConfidence = -1;
+
+        for (int i = 0; i < TITLE_OCR_SCALES.length; i++) {
+            double scale = TITLE_OCR_SCALES[i];
+            List<Word> lines;
+            if (i == 0 && batchLines != null) lines = batchLines;
+            else lines = this.recognizeTitleLines(this.getTitleRaster(cropBounds, scale, titleRaster));
+            StringBuilder titleText = new StringBuilder();
+            float confidence = lines.isEmpty() ? 0 : 100;
+            for (Word line : lines) {
+                titleText.append(line.getText());
+                confidence = Math.min(confidence, line.getConfidence());
+            }
+            String title = titleText.toString().replace("\u2014", "").replace("-\n", "").replace("\n", " ").replace("\r", "\n").trim();
+
+            if (confidence >= TITLE_MIN_CONFIDENCE && TITLE_PATTERN.matcher(title).matches()) {
+                log.debug("Recognized title of menu {} at scale {} with confidence {}", index, scale, confidence);
+                return new RecognizedTitle(title, true);
+            }
+            if (confidence > bestConfidence) {
+                bestTitle = title;
+                bestConfidence = confidence;
+            }
+            if (i < TITLE_OCR_SCALES.length - 1) {
+                log.debug("Title of menu {} failed the checks at scale {} with confidence {}, escalating", index, scale, confidence);
+                Metrics.increment(ParserCounter.OCR_ESCALATION);
+            }
+        }
+
+        log.debug("No resolution passed the title checks of menu {}, using the most confident one", index);
+        return new RecognizedTitle(bestTitle, false);
+    }
+
+    /**
+     * Method to get the bounds of the crop around a title which gets passed to tesseract
+     *
+     * @param titleBounds bounds of the title on the page
+     * @return bounds of the crop with a margin around the title
+     */
+
+    private Rectangle getTitleCrop(Rectangle titleBounds) {
+        return new Rectangle(titleBounds.x - 10, titleBounds.y - 10, titleBounds.width + 20, titleBounds.height + 20);
+    }
+
+    /**
+     * Method to get the preprocessed title crop at a scale of {@link #TITLE_OCR_SCALES}
+     *
+     * @param cropBounds  bounds of the title crop on the rendered page
+     * @param scale       scale relative to the rendered page
+     * @param titleRaster preprocessed title crop at the resolution of the rendered page
+     * @return preprocessed raster
+     * @throws IOException exception thrown if the title can't be rendered
+     */
+
+    private GrayRaster getTitleRaster(Rectangle cropBounds, double scale, GrayRaster titleRaster) throws IOException {
+        if (scale == 1) return titleRaster;
+        if (scale < 1) return this.preprocessTitle(GrayRaster.fromImage(this.image, cropBounds).scale(scale));
+        return this.preprocessTitle(this.renderTitle(cropBounds, scale));
+    }
+
+    /**
+     * Method to recognize the text lines of a preprocessed title crop
+     *
+     * @param raster preprocessed title crop
+     * @return text lines with their confidence
+     * @throws IOException          exception thrown if the tessdata can't be extracted
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     */
+
+    private List<Word> recognizeTitleLines(GrayRaster raster) throws IOException, URISyntaxException, InterruptedException {
+        Tesseract tesseract = this.createTesseractInstance();
+        try (GovernorPermit ignored = acquireOcrSlot()) {
+            return tesseract.getWords(raster.toImage(), ITessAPI.TessPageIteratorLevel.RIL_TEXTLINE);
+        }
+    }
+
+    /**
+     * Method to recognize the text lines of the stitched title crops of a {@link TitleBatch}
+     *
+     * @param raster stitched title crops
+     * @return text lines with their confidence
+     * @throws IOException          exception thrown if the tessdata can't be extracted
+     * @throws URISyntaxException   exception thrown if no tessdata was found
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting for an ocr slot
+     */
+
+    List<Word> recognizeTitleBatch(GrayRaster raster) throws IOException, URISyntaxException, InterruptedException {
+        return this.recognizeTitleLines(raster);
+    }
+
+    /**
+     * Method to render a title crop again from the pdf at a higher resolution than the rendered page
+     *
+     * @param cropBounds bounds of the title crop on the rendered page
+     * @param scale      scale relative to the rendered page
+     * @return grayscale raster of the title crop
+     * @throws IOException exception thrown if the page can't be rendered
+     */
+
+    private GrayRaster renderTitle(Rectangle cropBounds, double scale) throws IOException {
+        float renderScale = (float) (MenuFetcher.IMAGE_SCALE_FACTOR * scale);
+        BufferedImage crop = new BufferedImage((int) Math.ceil(cropBounds.width * scale), (int) Math.ceil(cropBounds.height * scale), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = crop.createGraphics();
+        try {
+            //the renderer clears the page with the background color which would otherwise be black
+            graphics.setBackground(Color.WHITE);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, crop.getWidth(), crop.getHeight());
+            //move the crop to the origin so only the title region gets drawn into the small image
+            graphics.translate(-cropBounds.x * scale, -cropBounds.y * scale);
+            //pdfbox documents aren't safe to be rendered by multiple threads at once
+            synchronized (this.PDF) {
+                new PDFRenderer(this.PDF).renderPageToGraphics(0, graphics, renderScale, renderScale, RenderDestination.EXPORT);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return GrayRaster.fromImage(crop, new Rectangle(0, 0, crop.getWidth(), crop.getHeight()));
+    }
+
     /**
      * Method to read the menus exclusively with the pdf file and without ocr
      *
@@ -371,15 +1136,25 @@ public class MenuParser {
      * @throws RuntimeException exception thrown if an invalid text was given as input
      */
 
-    private void readMenus() throws IOException, RuntimeException {
+    void readMenus() throws IOException, RuntimeException {
+        this.parsedMenus.clear();
         log.info("Started parsing menus without ocr");
+        long start = System.nanoTime();
+        Menu[] menus = new Menu[this.menus.size()];
         PDFTextStripperByArea areaStripper = new PDFTextStripperByArea();
-        //add all text regions to the text stripper
+        //add all text regions of changed menus to the text stripper
         for (Rectangle boundingBox : this.menus) {
+            int index = this.menus.indexOf(boundingBox);
+            menus[index] = this.getReusableMenu(index);
+            if (menus[index] != null) {
+                this.emit(menus[index]);
+                continue;
+            }
             Rectangle scaled = this.downscaleRectangle(boundingBox);
-            areaStripper.addRegion(String.valueOf(this.menus.indexOf(boundingBox)), scaled);
+            areaStripper.addRegion(String.valueOf(index), scaled);
         }
-        areaStripper.extractRegions(this.PDF.getPage(0));
+        if (!areaStripper.getRegions().isEmpty()) areaStripper.extractRegions(this.PDF.getPage(0));
+        this.record(ParserStage.TEXT_EXTRACTION, start);
 
         for (String region : areaStripper.getRegions()) {
             String regionText = areaStripper.getTextForRegion(region);
@@ -387,8 +1162,11 @@ public class MenuParser {
             if (split.length != 2) throw new RuntimeException("No or more than one text separator found");
             String title = split[0].replace("-\n", " ").replace("\n", " ").replace("\r", "");
             String content = split[1].replace("-\n", " ").replace("\n", " ").replace("\r", "");
-            parseMenu(title, content, this.menus.get(Integer.parseInt(region)));
+            int index = Integer.parseInt(region);
+            menus[index] = this.parseMenu(title, content, this.menus.get(index));
+            this.emit(menus[index]);
         }
+        this.parsedMenus.addAll(Arrays.asList(menus));
     }
 
     /**
@@ -397,17 +1175,17 @@ public class MenuParser {
      * @param title       title text
      * @param content     content text
      * @param boundingBox bounding box of the menu
+     * @return parsed menu
      * @throws IOException exception thrown if an error occurs while extracting the label
      */
 
-    private void parseMenu(String title, String content, Rectangle boundingBox) throws IOException {
+    private Menu parseMenu(String title, String content, Rectangle boundingBox) throws IOException {
         String description = this.getMenuDescription(content);
         MenuLabel label = this.getMenuLabel(boundingBox);
         List<MenuPrice> prices = this.getMenuPrices(content);
         int menuGroup = this.getMenuGroup(boundingBox);
         Date date = this.getMenuDate(boundingBox);
-        Menu menu = new Menu(title, prices, description, date, menuGroup, label);
-        this.parsedMenus.add(menu);
+        return new Menu(title, prices, description, date, menuGroup, label);
     }
 
     /**
@@ -447,7 +1225,8 @@ public class MenuParser {
      * @throws IOException exception thrown if the images can't be read from the pdf page
      */
 
-    private MenuLabel getMenuLabel(Rectangle boundingBox) throws IOException {
+    MenuLabel getMenuLabel(Rectangle boundingBox) throws IOException {
+        long start = System.nanoTime();
         PDFImageParser imageParser = new PDFImageParser();
         imageParser.processPage(this.PDF.getPage(0));
 
@@ -457,15 +1236,11 @@ public class MenuParser {
 
         //compare every image in the pdf with the given label icons
         for (Rectangle imageBounds : imageParser.getImages().keySet()) {
-            int imageX = imageBounds.x * MenuFetcher.IMAGE_SCALE_FACTOR;
-            int imageHeight = imageBounds.height * MenuFetcher.IMAGE_SCALE_FACTOR;
-            int imageY = this.image.getHeight() - imageBounds.y * MenuFetcher.IMAGE_SCALE_FACTOR - imageHeight;
-            int imageWidth = imageBounds.width * MenuFetcher.IMAGE_SCALE_FACTOR;
-            Rectangle scaledImageBounds = new Rectangle(imageX, imageY, imageWidth, imageHeight);
+            Rectangle scaledImageBounds = this.scaleImageBounds(imageBounds);
 
             if (boundingBox.intersects(scaledImageBounds)) {
                 for (MenuLabel menuLabel : MenuLabel.values()) {
-                    BufferedImage defaultIcon = ImageIO.read(Objects.requireNonNull(Main.class.getClassLoader().getResourceAsStream("icons/" + menuLabel.toString() + ".png")));
+                    BufferedImage defaultIcon = getDefaultIcon(menuLabel);
                     BufferedImage currentIcon = imageParser.getImages().get(imageBounds);
                     double similarity = this.getSimilarity(defaultIcon, currentIcon);
                     if (highestSimilarity < similarity) {
@@ -481,12 +1256,14 @@ public class MenuParser {
         //check if there could be a new icon
         if (highestSimilarity < 80 && highestSimilarity > 0) {
             log.warn("Possible new icon found since only a low similarity was found");
+            Metrics.increment(ParserCounter.UNKNOWN_ICON);
             double highestUnknownSimilarity = 0;
-            File iconsDirectory = new File("icons");
-            if (iconsDirectory.exists()) {
-                for (File file : Objects.requireNonNull(iconsDirectory.listFiles())) {
+            File[] unknownIcons = ICONS_DIRECTORY.listFiles((directory, name) -> name.endsWith(".png"));
+            if (unknownIcons != null) {
+                for (File file : unknownIcons) {
                     try {
                         BufferedImage image = ImageIO.read(file);
+                        if (image == null) continue;
                         double similarity = this.getSimilarity(image, highestSimilarityImage);
                         if (similarity > highestUnknownSimilarity) highestUnknownSimilarity = similarity;
                     } catch (IOException e) {
@@ -497,16 +1274,61 @@ public class MenuParser {
             if (highestUnknownSimilarity > 80)
                 log.warn("Didn't save unknown icon. Reason: Found similar unknown icon in icons directory");
             else {
-                File unknownIcon = new File("icons/unknownicon-" + new Date().getTime() + ".png");
-                if (!unknownIcon.exists()) {
-                    if (unknownIcon.mkdirs()) ImageIO.write(highestSimilarityImage, "png", unknownIcon);
-                }
+                Rectangle iconBounds = new Rectangle(0, 0, highestSimilarityImage.getWidth(), highestSimilarityImage.getHeight());
+                DiagnosticsWriter.getInstance().submit(ICONS_DIRECTORY, "unknownicon", highestSimilarityImage, iconBounds, boundingBox, List.of(), Map.of("similarity", highestSimilarity));
             }
         }
 
+        this.record(ParserStage.LABEL_MATCHING, start);
         return label;
     }
 
+    /**
+     * Get the decoded icon of a label which is loaded once and shared by all parsers
+     *
+     * @param label label of the icon
+     * @return decoded icon (mustn't be modified)
+     * @throws IOException exception thrown if the icon can't be read
+     */
+
+    static synchronized BufferedImage getDefaultIcon(MenuLabel label) throws IOException {
+        BufferedImage icon = DEFAULT_ICONS.get(label);
+        if (icon == null) {
+            try (InputStream stream = Objects.requireNonNull(MenuParser.class.getClassLoader().getResourceAsStream("icons/" + label.toString() + ".png"))) {
+                icon = ImageIO.read(stream);
+            }
+            DEFAULT_ICONS.put(label, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * Load the icons of all labels ahead of the first parse
+     *
+     * @throws IOException exception thrown if an icon can't be read
+     */
+
+    public static void loadIcons() throws IOException {
+        for (MenuLabel label : MenuLabel.values()) getDefaultIcon(label);
+    }
+
+    /**
+     * Parse a generated sample document so the hot methods get compiled ahead of the first real parse
+     *
+     * @param ocr        whether the titles of the sample can only be read by ocr
+     * @param iterations amount of parses of the sample
+     * @throws IllegalStateException exception thrown if no menus were parsed from the sample
+     */
+
+    public static void parseSample(boolean ocr, int iterations) throws URISyntaxException, IOException, ParseException, ExecutionException, InterruptedException, IllegalStateException {
+        byte[] sample = MenuCorpus.generate(ocr ? MenuCorpus.Layout.OCR_REQUIRED : MenuCorpus.Layout.WITH_ICONS);
+        for (int i = 0; i < iterations; i++) {
+            try (MenuParser parser = new MenuParser(new MenuFetcher(PDDocument.load(sample)))) {
+                if (parser.getMenuWeek().getMenus().isEmpty()) throw new IllegalStateException("Sample document contains no menus");
+            }
+        }
+    }
+
     /**
      * Method to get the date of a menu
      *
@@ -549,7 +1371,8 @@ public class MenuParser {
      * @throws IllegalArgumentException error thrown if the given images do not have the same dimensions
      */
 
-    private double getSimilarity(BufferedImage image1, BufferedImage image2) throws IllegalArgumentException {
+    double getSimilarity(BufferedImage image1, BufferedImage image2) throws IllegalArgumentException {
+        long start = System.nanoTime();
         int width = image1.getWidth();
         int height = image1.getHeight();
 
@@ -573,6 +1396,7 @@ public class MenuParser {
 
         long maxDifference = 765L * width * height;
 
+        this.record(ParserStage.SIMILARITY, start);
         return 100 - (100.0 * difference / maxDifference);
     }
 
@@ -596,15 +1420,68 @@ public class MenuParser {
         return this.menus;
     }
 
+    /**
+     * Get the rendered image of the first pdf page
+     *
+     * @return rendered page image
+     * @throws IllegalStateException exception thrown if the pooled page image was already released by {@link #close()}
+     */
+
+    public BufferedImage getImage() throws IllegalStateException {
+        return this.imageLease != null ? this.imageLease.getImage() : this.image;
+    }
+
     /**
      * Get a BufferedImage with the drawn bounding boxes of the recognized menus
      *
      * @return BufferedImage with drawn bounding boxes
+     * @throws IllegalStateException exception thrown if the pooled page image was already released by {@link #close()}
      */
 
-    public BufferedImage getDrawnMenuBounds() {
-        BufferedImage copy = this.getImageCopy();
-        Graphics2D graphics = (Graphics2D) copy.getGraphics();
+    public BufferedImage getDrawnMenuBounds() throws IllegalStateException {
+        BufferedImage image = this.getImage();
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        return this.drawMenuBounds(image, copy);
+    }
+
+    /**
+     * Get a pooled image with the drawn bounding boxes of the recognized menus
+     *
+     * @return lease of the image with drawn bounding boxes which has to be released after the image isn't used anymore
+     * @throws IllegalStateException exception thrown if the pooled page image was already released by {@link #close()}
+     */
+
+    public RasterLease leaseDrawnMenuBounds() throws IllegalStateException {
+        BufferedImage image = this.getImage();
+        RasterLease lease = RasterPool.getInstance().lease(image.getWidth(), image.getHeight(), image.getType());
+        this.drawMenuBounds(image, lease.getImage());
+        return lease;
+    }
+
+    /**
+     * Release the pooled page image and return the reserved memory to the {@link ParseGovernor}
+     * <p>
+     * The image of the parser mustn't be used afterwards while the parsed menus stay valid. Parsers which are never
+     * closed return the reserved memory once they are garbage collected, but their image isn't reused by the pool.
+     */
+
+    @Override
+    public void close() {
+        if (this.imageLease != null) this.imageLease.close();
+        if (this.permitRelease != null) this.permitRelease.clean();
+    }
+
+    /**
+     * Internal method to draw the page with the bounding boxes of the recognized menus into an image
+     *
+     * @param image page image
+     * @param copy  image with the size and type of the page image
+     * @return the given copy
+     */
+
+    private BufferedImage drawMenuBounds(BufferedImage image, BufferedImage copy) {
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
         graphics.setStroke(new BasicStroke(BORDER_WIDTH));
         graphics.setColor(BOUNDS_COLOR);
         graphics.setFont(new Font(graphics.getFont().getFontName(), Font.PLAIN, 25));
@@ -613,35 +1490,44 @@ public class MenuParser {
             graphics.drawRect(menu.x, menu.y, menu.width, menu.height);
             graphics.drawString("Menu " + this.menus.indexOf(menu), menu.x + BORDER_WIDTH / 2f, menu.y + menu.height - 2);
         }
+        graphics.dispose();
 
         return copy;
     }
 
     /**
-     * Internal method to create a copy of the initial image
+     * Internal method to queue a cropped region of the page as diagnostic artifact
      *
-     * @return copy of the initial BufferedImage
+     * @param directory  directory in which the artifact should be saved
+     * @param kind       kind of the artifact
+     * @param region     region of interest on the page
+     * @param highlights rectangles on the page which should be highlighted
+     * @param metadata   additional information about the failure
      */
 
-    private BufferedImage getImageCopy() {
-        BufferedImage copy = new BufferedImage(this.image.getWidth(), this.image.getHeight(), this.image.getType());
-        Graphics2D graphics = (Graphics2D) copy.getGraphics();
-        graphics.drawImage(this.image, 0, 0, null);
-        return copy;
+    private void saveDiagnostic(File directory, String kind, Rectangle region, List<Rectangle> highlights, Map<String, Object> metadata) {
+        List<Rectangle> relativeHighlights = new ArrayList<>();
+        for (Rectangle highlight : highlights) {
+            Rectangle relative = new Rectangle(highlight);
+            relative.translate(-Math.max(0, region.x), -Math.max(0, region.y));
+            relativeHighlights.add(relative);
+        }
+        DiagnosticsWriter.getInstance().submit(directory, kind, this.image, region, region, relativeHighlights, metadata);
     }
 
     /**
      * Internal method to create a new tesseract instance
      *
      * @return new tesseract instance
+     * @throws IOException        exception thrown if the tessdata can't be extracted
      * @throws URISyntaxException exception thrown if no tessdata was found
      */
 
-    private Tesseract createTesseractInstance() throws URISyntaxException {
-        Tesseract tesseract = new Tesseract();
+    private Tesseract createTesseractInstance() throws IOException, URISyntaxException {
+        Tesseract tesseract = new TrackedTesseract();
         tesseract.setLanguage("Latin");
         tesseract.setOcrEngineMode(ITessAPI.TessOcrEngineMode.OEM_LSTM_ONLY);
-        tesseract.setDatapath(Paths.get(ClassLoader.getSystemResource("tessdata").toURI()).toString());
+        tesseract.setDatapath(Tessdata.getDirectory().getPath());
         tesseract.setTessVariable("user_defined_dpi", "300");
         tesseract.setTessVariable("preserve_interword_spaces", "1");
         tesseract.setPageSegMode(ITessAPI.TessPageSegMode.PSM_AUTO_OSD);
@@ -649,6 +1535,106 @@ public class MenuParser {
         return tesseract;
     }
 
+    /**
+     * Internal method to pass a parsed menu to the stream listener
+     *
+     * @param menu parsed menu
+     */
+
+    private void emit(Menu menu) {
+        if (this.menuListener != null) this.menuListener.accept(menu);
+    }
+
+    /**
+     * Internal method to record the duration of a stage in the metrics and the trace
+     *
+     * @param stage executed stage
+     * @param start start time of the stage from {@link System#nanoTime()}
+     * @return duration of the stage in nanoseconds
+     */
+
+    private long record(ParserStage stage, long start) {
+        long duration = Metrics.recordSince(stage, start);
+        if (this.trace != null) this.trace.addSpan(stage, start, duration);
+        return duration;
+    }
+
+    /**
+     * Internal method to render the first page of the fetched document
+     *
+     * @param fetcher fetcher containing the document
+     * @param trace   trace of the parse (null if tracing is disabled)
+     * @param permit  admission of the parse which gets released if the rendering fails (null if parses aren't limited)
+     * @return lease of the rendered page
+     * @throws IOException exception thrown when the rendering fails
+     */
+
+    private static RasterLease render(MenuFetcher fetcher, ParseTrace trace, GovernorPermit permit) throws IOException {
+        long start = System.nanoTime();
+        long allocationStart = trace != null ? ParseTrace.currentThreadAllocatedBytes() : 0;
+        RasterLease lease;
+        try {
+            lease = fetcher.renderPage();
+        } catch (IOException | RuntimeException e) {
+            //the parser owns the document, so nobody else would close it after a failed rendering
+            if (permit != null) permit.close();
+            closePDF(fetcher, e);
+            throw e;
+        }
+        if (trace != null) {
+            trace.addSpan(ParserStage.RENDER, start, System.nanoTime() - start);
+            trace.addAllocatedBytes(ParseTrace.currentThreadAllocatedBytes() - allocationStart);
+        }
+        return lease;
+    }
+
+    /**
+     * Internal method to wait until the {@link ParseGovernor} admits the parse of a fetched document
+     *
+     * @param fetcher fetcher containing the document
+     * @return admission of the parse (null if parses aren't limited)
+     * @throws InterruptedException       exception thrown if the thread gets interrupted while waiting
+     * @throws RejectedExecutionException exception thrown if the governor rejected the parse
+     */
+
+    private static GovernorPermit admit(MenuFetcher fetcher) throws InterruptedException, RejectedExecutionException {
+        ParseGovernor governor = ParseGovernor.getInstance();
+        if (governor == null) return null;
+        try {
+            return governor.admit(ParseGovernor.estimate(fetcher));
+        } catch (InterruptedException | RuntimeException e) {
+            closePDF(fetcher, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Internal method to wait for a free ocr slot of the {@link ParseGovernor}
+     *
+     * @return ocr slot which has to be released after the tesseract call (null if tesseract calls aren't limited)
+     * @throws InterruptedException exception thrown if the thread gets interrupted while waiting
+     */
+
+    private static GovernorPermit acquireOcrSlot() throws InterruptedException {
+        ParseGovernor governor = ParseGovernor.getInstance();
+        return governor != null ? governor.acquireOcrSlot() : null;
+    }
+
+    /**
+     * Internal method to close the document of a fetcher after a failed parse without hiding the failure
+     *
+     * @param fetcher fetcher containing the document
+     * @param failure exception of the failed parse to which a closing exception gets added
+     */
+
+    private static void closePDF(MenuFetcher fetcher, Exception failure) {
+        try {
+            fetcher.closePDF();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
     /**
      * Internal method to upscale a rectangle by the image scale factor
      *
@@ -664,6 +1650,21 @@ public class MenuParser {
         return new Rectangle(rectX, rectY, rectWidth, rectHeight);
     }
 
+    /**
+     * Internal method to convert the pdf position of an image into its bounds on the rendered page
+     *
+     * @param imageBounds position of the image in pdf coordinates
+     * @return bounds of the image on the rendered page
+     */
+
+    private Rectangle scaleImageBounds(Rectangle imageBounds) {
+        int imageX = imageBounds.x * MenuFetcher.IMAGE_SCALE_FACTOR;
+        int imageHeight = imageBounds.height * MenuFetcher.IMAGE_SCALE_FACTOR;
+        int imageY = this.image.getHeight() - imageBounds.y * MenuFetcher.IMAGE_SCALE_FACTOR - imageHeight;
+        int imageWidth = imageBounds.width * MenuFetcher.IMAGE_SCALE_FACTOR;
+        return new Rectangle(imageX, imageY, imageWidth, imageHeight);
+    }
+
     /**
      * Internal method to downscale a rectangle by the image scale factor
      *
@@ -678,4 +1679,21 @@ public class MenuParser {
         int rectHeight = rectangle.height / MenuFetcher.IMAGE_SCALE_FACTOR;
         return new Rectangle(rectX, rectY, rectWidth, rectHeight);
     }
+
+    private static class RecognizedTitle {
+        private final String title;
+        private final boolean accepted;
+
+        /**
+         * Create a new RecognizedTitle instance
+         *
+         * @param title    recognized title
+         * @param accepted whether the title passed the confidence and pattern checks
+         */
+
+        private RecognizedTitle(String title, boolean accepted) {
+            this.title = title;
+            this.accepted = accepted;
+        }
+    }
 }
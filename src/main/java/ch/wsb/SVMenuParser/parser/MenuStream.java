@@ -0,0 +1,94 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.menu.Menu;
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+public class MenuStream implements Flow.Publisher<Menu> {
+    public static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+
+    private final SubmissionPublisher<Menu> publisher;
+    private final CompletableFuture<MenuWeek> menuWeek = new CompletableFuture<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Parse parse;
+
+    /**
+     * Create a new MenuStream instance
+     *
+     * @param bufferSize maximum amount of menus buffered per subscriber
+     * @param parse      parse which publishes the menus into the stream
+     */
+
+    MenuStream(int bufferSize, Parse parse) {
+        this.publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), bufferSize);
+        this.parse = parse;
+    }
+
+    /**
+     * Add a subscriber and start the parse if it's the first one
+     * <p>
+     * Subscribers added after the parse started only receive the remaining menus
+     *
+     * @param subscriber subscriber of the parsed menus
+     */
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Menu> subscriber) {
+        this.publisher.subscribe(subscriber);
+        if (!this.started.compareAndSet(false, true)) return;
+        Thread thread = new Thread(() -> {
+            try {
+                this.parse.run(this);
+            } catch (Throwable t) {
+                //errors have to end the stream as well, otherwise subscribers and the menu week wait forever
+                log.error("Failed to parse menu stream", t);
+                this.menuWeek.completeExceptionally(t);
+                this.publisher.closeExceptionally(t);
+            }
+        }, "MenuStream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Get the menu week assembled from all emitted menus
+     *
+     * @return future completed before the subscribers complete
+     */
+
+    public CompletableFuture<MenuWeek> getMenuWeek() {
+        return this.menuWeek;
+    }
+
+    /**
+     * Internal method to emit a parsed menu and wait while a subscriber has no demand left
+     *
+     * @param menu parsed menu
+     */
+
+    void publish(Menu menu) {
+        this.publisher.submit(menu);
+    }
+
+    /**
+     * Internal method to complete the stream with the assembled menu week
+     *
+     * @param menuWeek assembled menu week
+     */
+
+    void complete(MenuWeek menuWeek) {
+        this.menuWeek.complete(menuWeek);
+        this.publisher.close();
+    }
+
+    interface Parse {
+        void run(MenuStream stream) throws Exception;
+    }
+}
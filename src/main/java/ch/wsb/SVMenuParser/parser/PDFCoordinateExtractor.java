@@ -19,6 +19,9 @@ public class PDFCoordinateExtractor extends PDFTextStripperByArea {
     @Getter
     private final List<Map.Entry<String, Rectangle>> words = new ArrayList();
 
+    @Getter
+    private final List<List<TextPosition>> glyphs = new ArrayList<>();
+
     @Getter
     private final Rectangle region;
 
@@ -50,6 +53,7 @@ public class PDFCoordinateExtractor extends PDFTextStripperByArea {
             else boundingBox.add(bounds);
         }
         words.add(new AbstractMap.SimpleEntry<>(text, boundingBox));
+        glyphs.add(new ArrayList<>(textPositions));
     }
 
     /**
@@ -65,4 +69,18 @@ public class PDFCoordinateExtractor extends PDFTextStripperByArea {
         }
         return unparsable;
     }
+
+    /**
+     * Method to get the glyphs of all words in the region which can't be parsed by the standard charset
+     *
+     * @return list with the glyphs of every unparsable word
+     */
+
+    public List<List<TextPosition>> getUnparsableGlyphs() {
+        List<List<TextPosition>> unparsable = new ArrayList<>();
+        for (int i = 0; i < this.words.size(); i++) {
+            if (!StandardCharsets.ISO_8859_1.newEncoder().canEncode(this.words.get(i).getKey())) unparsable.add(this.glyphs.get(i));
+        }
+        return unparsable;
+    }
 }
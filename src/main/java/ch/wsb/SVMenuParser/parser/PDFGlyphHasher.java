@@ -0,0 +1,66 @@
+package ch.wsb.SVMenuParser.parser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripperByArea;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+
+@Slf4j
+public class PDFGlyphHasher extends PDFTextStripperByArea {
+    private final List<Rectangle> regions;
+    private final long[] hashes;
+
+    /**
+     * Instantiate a new PDFGlyphHasher object which hashes the glyph stream of every region
+     *
+     * @param regions regions of which the glyphs should be hashed
+     * @param pdfPage pdf page of which the glyphs should be hashed
+     * @throws IOException If there is an error loading the properties.
+     */
+
+    public PDFGlyphHasher(List<Rectangle> regions, PDPage pdfPage) throws IOException {
+        log.debug("Initializing new PDFGlyphHasher");
+        this.regions = regions;
+        this.hashes = new long[regions.size()];
+        for (int i = 0; i < regions.size(); i++) this.addRegion(String.valueOf(i), regions.get(i));
+        this.extractRegions(pdfPage);
+        log.debug("Successfully initialized new PDFGlyphHasher");
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        for (int i = 0; i < this.regions.size(); i++) {
+            if (!this.regions.get(i).contains(text.getX(), text.getY())) continue;
+            long hash = this.hashes[i];
+            hash = hash * 31 + (text.getFont() != null ? String.valueOf(text.getFont().getName()).hashCode() : 0);
+            hash = hash * 31 + String.valueOf(text.getUnicode()).hashCode();
+            if (text.getCharacterCodes() != null) {
+                for (int code : text.getCharacterCodes()) hash = hash * 31 + code;
+            }
+            //round the positions so rounding differences of the pdf writer don't change the hash
+            hash = hash * 31 + Math.round(text.getX() * 10);
+            hash = hash * 31 + Math.round(text.getY() * 10);
+            hash = hash * 31 + Math.round(text.getHeight() * 10);
+            this.hashes[i] = hash;
+        }
+    }
+
+    @Override
+    protected void writeString(String text, List<TextPosition> textPositions) {
+    }
+
+    /**
+     * Get the glyph stream hash of a region
+     *
+     * @param index index of the region
+     * @return hash of all glyphs in the region
+     */
+
+    public long getHash(int index) {
+        return this.hashes[index];
+    }
+}
@@ -0,0 +1,73 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.menu.Menu;
+import lombok.Getter;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class ParseSnapshot {
+    @Getter
+    private final Date weekDate;
+
+    @Getter
+    private final List<Cell> cells;
+
+    /**
+     * Create a new ParseSnapshot instance
+     *
+     * @param weekDate week date of the parsed document
+     * @param cells    parsed menu cells in the order of the menu bounding boxes
+     */
+
+    public ParseSnapshot(Date weekDate, List<Cell> cells) {
+        this.weekDate = weekDate;
+        this.cells = Collections.unmodifiableList(new ArrayList<>(cells));
+    }
+
+    /**
+     * Get the previously parsed menu of a cell if the cell didn't change
+     *
+     * @param weekDate    week date of the new document
+     * @param cellCount   amount of menu cells in the new document
+     * @param index       index of the menu cell
+     * @param bounds      bounding box of the menu cell in the new document
+     * @param fingerprint fingerprint of the menu cell in the new document
+     * @return previously parsed menu (null if the cell has to be parsed again)
+     */
+
+    public Menu getMenu(Date weekDate, int cellCount, int index, Rectangle bounds, CellFingerprint fingerprint) {
+        if (!this.weekDate.equals(weekDate) || this.cells.size() != cellCount) return null;
+        Cell cell = this.cells.get(index);
+        if (!cell.getBounds().equals(bounds) || !cell.getFingerprint().equals(fingerprint)) return null;
+        return cell.getMenu();
+    }
+
+    public static class Cell {
+        @Getter
+        private final Rectangle bounds;
+
+        @Getter
+        private final CellFingerprint fingerprint;
+
+        @Getter
+        private final Menu menu;
+
+        /**
+         * Create a new Cell instance
+         *
+         * @param bounds      bounding box of the menu cell
+         * @param fingerprint fingerprint of the menu cell
+         * @param menu        parsed menu of the cell
+         */
+
+        public Cell(Rectangle bounds, CellFingerprint fingerprint, Menu menu) {
+            this.bounds = new Rectangle(bounds);
+            this.fingerprint = fingerprint;
+            this.menu = menu;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ch.wsb.SVMenuParser.parser;
+
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import ch.wsb.SVMenuParser.metrics.ParserStage;
+import ch.wsb.SVMenuParser.ocr.GrayRaster;
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.Word;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Slf4j
+class TitleBatch {
+    public static final int SEPARATOR_HEIGHT = 32;
+    public static final int MARGIN = 16;
+
+    private final GrayRaster[] crops;
+    private final boolean[] arrived;
+    private final Recognizer recognizer;
+    private final List<List<Word>> results = new ArrayList<>();
+
+    private int remaining;
+    private boolean finished;
+    private Throwable failure;
+
+    /**
+     * Create a new TitleBatch instance
+     *
+     * @param cells      amount of menu cells which take part in the batch
+     * @param recognizer recognizer of the text lines on the stitched image
+     */
+
+    TitleBatch(int cells, Recognizer recognizer) {
+        this.crops = new GrayRaster[cells];
+        this.arrived = new boolean[cells];
+        this.remaining = cells;
+        this.recognizer = recognizer;
+    }
+
+    /**
+     * Add the title crop of a cell and wait until the titles of all cells are recognized
+     * <p>
+     * The thread of the last arriving cell stitches the crops and runs the recognition. If the recognition of the
+     * stitched image fails, every cell gets null so it can recognize its title on its own.
+     *
+     * @param index index of the menu cell
+     * @param crop  preprocessed title crop
+     * @return text lines of the crop from top to bottom (null if the recognition of the stitched image failed)
+     * @throws InterruptedException exception thrown if the waiting thread gets interrupted
+     */
+
+    List<Word> submit(int index, GrayRaster crop) throws InterruptedException {
+        this.arrive(index, crop);
+        synchronized (this) {
+            while (!this.finished) this.wait();
+            return this.failure != null ? null : this.results.get(index);
+        }
+    }
+
+    /**
+     * Mark a cell as not requiring ocr so the batch doesn't wait for it
+     * <p>
+     * Does nothing if the cell already arrived, so it can be called after a failure of the cell
+     *
+     * @param index index of the menu cell
+     */
+
+    void skip(int index) {
+        synchronized (this) {
+            if (this.arrived[index]) return;
+        }
+        this.arrive(index, null);
+    }
+
+    /**
+     * Internal method to register a cell and run the recognition if it's the last one
+     *
+     * @param index index of the menu cell
+     * @param crop  preprocessed title crop (null if the cell doesn't require ocr)
+     */
+
+    private void arrive(int index, GrayRaster crop) {
+        synchronized (this) {
+            if (this.arrived[index]) throw new IllegalStateException("Menu " + index + " already took part in the batch");
+            this.arrived[index] = true;
+            this.crops[index] = crop;
+            if (--this.remaining > 0) return;
+        }
+        this.run();
+    }
+
+    /**
+     * Internal method to stitch all crops into one tall image, recognize it and map the text lines back to their cells
+     */
+
+    private void run() {
+        long start = System.nanoTime();
+        List<List<Word>> results = new ArrayList<>();
+        for (int i = 0; i < this.crops.length; i++) results.add(new ArrayList<>());
+        Throwable failure = null;
+
+        //stack the crops left aligned with blank separators so tesseract's layout analysis keeps them apart
+        int width = 1;
+        int height = MARGIN;
+        int[] offsets = new int[this.crops.length];
+        for (int i = 0; i < this.crops.length; i++) {
+            if (this.crops[i] == null) continue;
+            offsets[i] = height;
+            width = Math.max(width, this.crops[i].getWidth());
+            height += this.crops[i].getHeight() + SEPARATOR_HEIGHT;
+        }
+
+        if (height > MARGIN) {
+            width += 2 * MARGIN;
+            height += MARGIN - SEPARATOR_HEIGHT;
+            byte[] pixels = new byte[width * height];
+            Arrays.fill(pixels, (byte) 0xff);
+            for (int i = 0; i < this.crops.length; i++) {
+                GrayRaster crop = this.crops[i];
+                if (crop == null) continue;
+                for (int y = 0; y < crop.getHeight(); y++) {
+                    System.arraycopy(crop.getPixels(), y * crop.getWidth(), pixels, (offsets[i] + y) * width + MARGIN, crop.getWidth());
+                }
+            }
+
+            try {
+                List<Word> lines = this.recognizer.recognize(new GrayRaster(width, height, pixels));
+                for (Word line : lines) {
+                    int index = this.getCrop(line.getBoundingBox(), offsets);
+                    if (index < 0) log.debug("Dropped stitched text line {} outside of all title crops", line.getBoundingBox());
+                    else results.get(index).add(line);
+                }
+            } catch (Throwable t) {
+                //the waiting cells have to be woken up even if the recognition fails with an error
+                log.warn("Failed to ocr the stitched menu titles, falling back to the titles of the single cells", t);
+                Metrics.increment(ParserCounter.TITLE_BATCH_FALLBACK);
+                failure = t;
+            }
+            Metrics.recordSince(ParserStage.TITLE_BATCH_OCR, start);
+        }
+
+        synchronized (this) {
+            this.results.addAll(results);
+            this.failure = failure;
+            this.finished = true;
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Internal method to get the crop which overlaps the most with a text line of the stitched image
+     *
+     * @param bounds  bounds of the text line
+     * @param offsets vertical offsets of the crops in the stitched image
+     * @return index of the cell (-1 if the line lies in a separator)
+     */
+
+    private int getCrop(Rectangle bounds, int[] offsets) {
+        int best = -1;
+        int bestOverlap = 0;
+        for (int i = 0; i < this.crops.length; i++) {
+            if (this.crops[i] == null) continue;
+            int overlap = Math.min(bounds.y + bounds.height, offsets[i] + this.crops[i].getHeight()) - Math.max(bounds.y, offsets[i]);
+            if (overlap > bestOverlap) {
+                best = i;
+                bestOverlap = overlap;
+            }
+        }
+        return best;
+    }
+
+    interface Recognizer {
+        List<Word> recognize(GrayRaster raster) throws Exception;
+    }
+}
@@ -0,0 +1,53 @@
+package ch.wsb.SVMenuParser.raster;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RasterLease implements AutoCloseable {
+    private final RasterPool pool;
+    private final BufferedImage image;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Create a new RasterLease instance
+     *
+     * @param pool  pool the image gets released to
+     * @param image leased image
+     */
+
+    RasterLease(RasterPool pool, BufferedImage image) {
+        this.pool = pool;
+        this.image = image;
+    }
+
+    /**
+     * Get the leased image
+     *
+     * @return leased image
+     * @throws IllegalStateException exception thrown if the lease was already released
+     */
+
+    public BufferedImage getImage() throws IllegalStateException {
+        if (this.released.get()) throw new IllegalStateException("Raster lease was already released");
+        return this.image;
+    }
+
+    /**
+     * Check whether the lease was released
+     *
+     * @return whether the image was returned to the pool
+     */
+
+    public boolean isReleased() {
+        return this.released.get();
+    }
+
+    /**
+     * Return the image to the pool (the image mustn't be used afterwards)
+     */
+
+    @Override
+    public void close() {
+        if (this.released.compareAndSet(false, true)) this.pool.release(this.image);
+    }
+}
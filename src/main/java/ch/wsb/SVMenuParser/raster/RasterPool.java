@@ -0,0 +1,210 @@
+package ch.wsb.SVMenuParser.raster;
+
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class RasterPool {
+    public static final long DEFAULT_MAX_IDLE_BYTES = 96L * 1024 * 1024;
+
+    private static volatile RasterPool instance = new RasterPool(DEFAULT_MAX_IDLE_BYTES);
+
+    @Getter
+    private final long maxIdleBytes;
+
+    private final Map<Key, Deque<BufferedImage>> idle = new HashMap<>();
+    private long idleBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * Create a new RasterPool instance
+     *
+     * @param maxIdleBytes maximum amount of bytes kept by released rasters which aren't leased
+     */
+
+    public RasterPool(long maxIdleBytes) {
+        if (maxIdleBytes < 0) throw new IllegalArgumentException("Maximum idle bytes can't be negative");
+        this.maxIdleBytes = maxIdleBytes;
+    }
+
+    /**
+     * Get the pool used by all fetchers and parsers
+     *
+     * @return shared pool instance
+     */
+
+    public static RasterPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replace the pool used by all fetchers and parsers
+     *
+     * @param pool new shared pool instance (a pool with no idle bytes disables pooling)
+     */
+
+    public static void setInstance(RasterPool pool) {
+        instance = Objects.requireNonNull(pool);
+    }
+
+    /**
+     * Lease an image with the given size and type
+     * <p>
+     * The content of a reused image is undefined and has to be overwritten by the caller
+     *
+     * @param width  width of the image
+     * @param height height of the image
+     * @param type   type of the image (e.g. {@link BufferedImage#TYPE_INT_RGB})
+     * @return lease which has to be released after the image isn't used anymore
+     */
+
+    public RasterLease lease(int width, int height, int type) {
+        Key key = new Key(width, height, type);
+        BufferedImage image = null;
+        synchronized (this) {
+            Deque<BufferedImage> images = this.idle.get(key);
+            if (images != null && !images.isEmpty()) {
+                image = images.pop();
+                this.idleBytes -= key.getBytes();
+            }
+        }
+
+        if (image != null) {
+            this.hits.incrementAndGet();
+            Metrics.increment(ParserCounter.RASTER_POOL_HIT);
+        } else {
+            this.allocations.incrementAndGet();
+            Metrics.increment(ParserCounter.RASTER_POOL_MISS);
+            image = new BufferedImage(width, height, type);
+        }
+        return new RasterLease(this, image);
+    }
+
+    /**
+     * Internal method to return a released image to the pool
+     *
+     * @param image released image
+     */
+
+    void release(BufferedImage image) {
+        Key key = new Key(image.getWidth(), image.getHeight(), image.getType());
+        synchronized (this) {
+            if (this.idleBytes + key.getBytes() <= this.maxIdleBytes) {
+                this.idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(image);
+                this.idleBytes += key.getBytes();
+                return;
+            }
+        }
+        this.discarded.incrementAndGet();
+        log.debug("Discarded released {}x{} raster since the pool is full", image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Remove all idle images from the pool
+     */
+
+    public synchronized void clear() {
+        this.idle.clear();
+        this.idleBytes = 0;
+    }
+
+    /**
+     * Get the amount of bytes kept by idle images
+     *
+     * @return idle bytes
+     */
+
+    public synchronized long getIdleBytes() {
+        return this.idleBytes;
+    }
+
+    /**
+     * Get the amount of leases which reused an idle image
+     *
+     * @return pool hits
+     */
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Get the amount of leases which had to allocate a new image
+     *
+     * @return allocations
+     */
+
+    public long getAllocations() {
+        return this.allocations.get();
+    }
+
+    /**
+     * Get the amount of released images which didn't fit into the pool anymore
+     *
+     * @return discarded images
+     */
+
+    public long getDiscarded() {
+        return this.discarded.get();
+    }
+
+    private static class Key {
+        private final int width;
+        private final int height;
+        private final int type;
+
+        /**
+         * Create a new Key instance
+         *
+         * @param width  width of the image
+         * @param height height of the image
+         * @param type   type of the image
+         */
+
+        private Key(int width, int height, int type) {
+            this.width = width;
+            this.height = height;
+            this.type = type;
+        }
+
+        /**
+         * Internal method to estimate the size of the image backing
+         *
+         * @return size in bytes
+         */
+
+        private long getBytes() {
+            int bytesPerPixel = switch (this.type) {
+                case BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED -> 1;
+                case BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_USHORT_565_RGB, BufferedImage.TYPE_USHORT_555_RGB -> 2;
+                case BufferedImage.TYPE_3BYTE_BGR -> 3;
+                default -> 4;
+            };
+            return (long) this.width * this.height * bytesPerPixel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key key)) return false;
+            return this.width == key.width && this.height == key.height && this.type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.width * 31 + this.height) * 31 + this.type;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package ch.wsb.SVMenuParser.scheduler;
+
+import ch.wsb.SVMenuParser.fetcher.MenuFetcher;
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+import ch.wsb.SVMenuParser.metrics.Metrics;
+import ch.wsb.SVMenuParser.metrics.ParserCounter;
+import ch.wsb.SVMenuParser.parser.MenuParser;
+import ch.wsb.SVMenuParser.parser.ParseSnapshot;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class MenuScheduler {
+    public static final double DEFAULT_JITTER = 0.1;
+    public static final long DEFAULT_RETRY_DELAY = TimeUnit.MINUTES.toMillis(1);
+    public static final long MAX_BACKOFF = TimeUnit.HOURS.toMillis(1);
+
+    @Getter
+    private final int maxConcurrentParses;
+
+    @Getter
+    private final double jitter;
+
+    @Getter
+    private final long retryDelay;
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService parseExecutor;
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<MenuWeek>> inFlight = new ConcurrentHashMap<>();
+    private final List<MenuSubscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Create a new MenuScheduler instance with the default jitter and retry delay
+     *
+     * @param maxConcurrentParses maximum amount of documents parsed at the same time
+     */
+
+    public MenuScheduler(int maxConcurrentParses) {
+        this(maxConcurrentParses, DEFAULT_JITTER, DEFAULT_RETRY_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new MenuScheduler instance
+     *
+     * @param maxConcurrentParses maximum amount of documents parsed at the same time (every parse runs its own ocr threads)
+     * @param jitter              maximum relative deviation of a poll from its interval (e.g. 0.1 for +-10%)
+     * @param retryDelay          delay before the first retry of a failed parse which gets doubled for every further failure
+     * @param unit                time unit of the retry delay
+     */
+
+    public MenuScheduler(int maxConcurrentParses, double jitter, long retryDelay, TimeUnit unit) {
+        if (maxConcurrentParses < 1) throw new IllegalArgumentException("At least one concurrent parse has to be allowed");
+        if (jitter < 0 || jitter >= 1) throw new IllegalArgumentException("Jitter has to be between 0 and 1");
+        this.maxConcurrentParses = maxConcurrentParses;
+        this.jitter = jitter;
+        this.retryDelay = unit.toMillis(retryDelay);
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonFactory("MenuScheduler"));
+        this.parseExecutor = Executors.newFixedThreadPool(maxConcurrentParses, daemonFactory("MenuScheduler-parse"));
+        log.info("Initialized new MenuScheduler");
+    }
+
+    /**
+     * Register a source which gets polled in its interval
+     * <p>
+     * The first poll starts after a random delay within the jitter of the interval so sources registered together don't poll at once
+     *
+     * @param source source to be polled
+     * @throws IllegalArgumentException exception thrown if a source with the same url is already registered
+     */
+
+    public void register(MenuSource source) throws IllegalArgumentException {
+        if (this.closed) throw new IllegalStateException("Scheduler is closed");
+        Registration registration = new Registration(source);
+        if (this.registrations.putIfAbsent(source.getKey(), registration) != null) {
+            throw new IllegalArgumentException("Source " + source + " is already registered");
+        }
+        long delay = (long) (ThreadLocalRandom.current().nextDouble() * this.jitter * source.getInterval());
+        this.schedule(registration, delay);
+        log.info("Registered menu source {}", source);
+    }
+
+    /**
+     * Remove a source so it doesn't get polled anymore
+     *
+     * @param source source to be removed
+     * @return whether the source was registered
+     */
+
+    public boolean unregister(MenuSource source) {
+        Registration registration = this.registrations.remove(source.getKey());
+        if (registration == null) return false;
+        ScheduledFuture<?> next = registration.next;
+        if (next != null) next.cancel(false);
+        log.info("Unregistered menu source {}", source);
+        return true;
+    }
+
+    /**
+     * Get all registered sources
+     *
+     * @return list with the registered sources
+     */
+
+    public List<MenuSource> getSources() {
+        List<MenuSource> sources = new ArrayList<>();
+        for (Registration registration : this.registrations.values()) sources.add(registration.source);
+        return sources;
+    }
+
+    /**
+     * Add a subscriber which gets notified about every parsed menu week
+     *
+     * @param subscriber subscriber to be added
+     */
+
+    public void subscribe(MenuSubscriber subscriber) {
+        this.subscribers.add(subscriber);
+    }
+
+    /**
+     * Remove a subscriber
+     *
+     * @param subscriber subscriber to be removed
+     */
+
+    public void unsubscribe(MenuSubscriber subscriber) {
+        this.subscribers.remove(subscriber);
+    }
+
+    /**
+     * Parse a registered source immediately
+     * <p>
+     * If the source is already being parsed the running parse is returned instead of starting a second one
+     *
+     * @param source registered source to be parsed
+     * @return future completed with the parsed menu week
+     * @throws IllegalArgumentException exception thrown if the source isn't registered
+     */
+
+    public CompletableFuture<MenuWeek> refresh(MenuSource source) throws IllegalArgumentException {
+        Registration registration = this.registrations.get(source.getKey());
+        if (registration == null) throw new IllegalArgumentException("Source " + source + " isn't registered");
+        return this.refresh(registration);
+    }
+
+    /**
+     * Stop polling and wait for the running parses to finish
+     *
+     * @param timeout maximum time to wait
+     * @param unit    time unit of the timeout
+     * @throws InterruptedException exception thrown if the waiting thread gets interrupted
+     */
+
+    public void close(long timeout, TimeUnit unit) throws InterruptedException {
+        this.closed = true;
+        this.timer.shutdownNow();
+        this.parseExecutor.shutdown();
+        if (!this.parseExecutor.awaitTermination(timeout, unit)) this.parseExecutor.shutdownNow();
+        this.registrations.clear();
+    }
+
+    /**
+     * Get the amount of started parses
+     *
+     * @return started parses
+     */
+
+    public long getParses() {
+        return this.parses.get();
+    }
+
+    /**
+     * Get the amount of refreshes which joined an already running parse
+     *
+     * @return coalesced refreshes
+     */
+
+    public long getCoalesced() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Get the amount of failed parses
+     *
+     * @return failed parses
+     */
+
+    public long getFailures() {
+        return this.failures.get();
+    }
+
+    /**
+     * Get the amount of parses which are running or waiting for a free parse slot
+     *
+     * @return in-flight parses
+     */
+
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    /**
+     * Method to fetch and parse the document of a source
+     * <p>
+     * The snapshot of the previous parse is used so only changed menu cells are parsed again
+     *
+     * @param source   source to be parsed
+     * @param previous snapshot of the previous parse (null if the source wasn't parsed yet)
+     * @return parser containing the menu week and the new snapshot
+     * @throws Exception exception thrown if the document can't be fetched or parsed
+     */
+
+    protected MenuParser parse(MenuSource source, ParseSnapshot previous) throws Exception {
+        return new MenuParser(new MenuFetcher(source.getUrl()), previous);
+    }
+
+    /**
+     * Internal method to start a parse of a source or join the running one
+     *
+     * @param registration registration of the source
+     * @return future completed with the parsed menu week
+     */
+
+    private CompletableFuture<MenuWeek> refresh(Registration registration) {
+        String key = registration.source.getKey();
+        CompletableFuture<MenuWeek> future = new CompletableFuture<>();
+        CompletableFuture<MenuWeek> running = this.inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            this.coalesced.incrementAndGet();
+            Metrics.increment(ParserCounter.REFRESH_COALESCED);
+            log.debug("Joined running parse of {}", registration.source);
+            return running;
+        }
+
+        try {
+            this.parseExecutor.execute(() -> this.run(registration, future));
+        } catch (RejectedExecutionException e) {
+            this.inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Internal method which parses a source and publishes the result to the subscribers
+     *
+     * @param registration registration of the source
+     * @param future       future to be completed with the parsed menu week
+     */
+
+    private void run(Registration registration, CompletableFuture<MenuWeek> future) {
+        MenuSource source = registration.source;
+        this.parses.incrementAndGet();
+        try {
+            MenuWeek menuWeek;
+            try (MenuParser parser = this.parse(source, registration.snapshot)) {
+                registration.snapshot = parser.getSnapshot();
+                menuWeek = parser.getMenuWeek();
+            }
+            //remove the parse before completing it so a refresh triggered by a subscriber starts a new one
+            this.inFlight.remove(source.getKey(), future);
+            future.complete(menuWeek);
+            for (MenuSubscriber subscriber : this.subscribers) {
+                try {
+                    subscriber.onMenuWeek(source, menuWeek);
+                } catch (RuntimeException e) {
+                    log.warn("Subscriber failed to handle menu week of {}", source, e);
+                }
+            }
+        } catch (Exception e) {
+            this.failures.incrementAndGet();
+            log.warn("Failed to parse menu week of {}", source, e);
+            this.inFlight.remove(source.getKey(), future);
+            future.completeExceptionally(e);
+            for (MenuSubscriber subscriber : this.subscribers) {
+                try {
+                    subscriber.onFailure(source, e);
+                } catch (RuntimeException subscriberException) {
+                    log.warn("Subscriber failed to handle failure of {}", source, subscriberException);
+                }
+            }
+        } catch (Throwable t) {
+            //errors have to release the source as well, otherwise every refresh joins the dead parse forever
+            log.error("Failed to parse menu week of {} with an error", source, t);
+            this.inFlight.remove(source.getKey(), future);
+            if (future.completeExceptionally(t)) this.failures.incrementAndGet();
+            throw t;
+        }
+    }
+
+    /**
+     * Internal method to poll a source and schedule its next poll
+     *
+     * @param registration registration of the source
+     */
+
+    private void poll(Registration registration) {
+        if (this.closed || this.registrations.get(registration.source.getKey()) != registration) return;
+        this.refresh(registration).whenComplete((menuWeek, exception) -> {
+            long delay;
+            if (exception == null) {
+                registration.failures.set(0);
+                delay = this.jitter(registration.source.getInterval());
+            } else {
+                int failures = registration.failures.incrementAndGet();
+                delay = this.jitter(Math.min(MAX_BACKOFF, this.retryDelay << Math.min(failures - 1, 16)));
+                log.info("Retrying {} in {}ms after {} failed polls", registration.source, delay, failures);
+            }
+            this.schedule(registration, delay);
+        });
+    }
+
+    /**
+     * Internal method to schedule the next poll of a source
+     *
+     * @param registration registration of the source
+     * @param delay        delay in milliseconds
+     */
+
+    private void schedule(Registration registration, long delay) {
+        if (this.closed || this.registrations.get(registration.source.getKey()) != registration) return;
+        try {
+            registration.next = this.timer.schedule(() -> this.poll(registration), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Didn't schedule poll of {} since the scheduler is closed", registration.source);
+        }
+    }
+
+    /**
+     * Internal method to randomly spread a delay by the jitter
+     *
+     * @param delay delay in milliseconds
+     * @return jittered delay in milliseconds
+     */
+
+    private long jitter(long delay) {
+        double deviation = (ThreadLocalRandom.current().nextDouble() * 2 - 1) * this.jitter;
+        return Math.max(0, (long) (delay * (1 + deviation)));
+    }
+
+    /**
+     * Internal method to create a thread factory for daemon threads
+     *
+     * @param name name prefix of the threads
+     * @return thread factory
+     */
+
+    private static ThreadFactory daemonFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Registration {
+        private final MenuSource source;
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile ParseSnapshot snapshot;
+        private volatile ScheduledFuture<?> next;
+
+        /**
+         * Create a new Registration instance
+         *
+         * @param source registered source
+         */
+
+        private Registration(MenuSource source) {
+            this.source = source;
+        }
+    }
+}
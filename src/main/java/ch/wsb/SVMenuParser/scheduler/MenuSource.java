@@ -0,0 +1,51 @@
+package ch.wsb.SVMenuParser.scheduler;
+
+import lombok.Getter;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+public class MenuSource {
+    @Getter
+    private final String restaurant;
+
+    @Getter
+    private final URL url;
+
+    @Getter
+    private final long interval;
+
+    /**
+     * Create a new MenuSource instance
+     *
+     * @param restaurant name of the restaurant
+     * @param url        url to the menu week pdf of the restaurant
+     * @param interval   time between two polls
+     * @param unit       time unit of the interval
+     * @throws IllegalArgumentException exception thrown if the url can't be fetched or the interval isn't positive
+     */
+
+    public MenuSource(String restaurant, URL url, long interval, TimeUnit unit) throws IllegalArgumentException {
+        if (!url.toString().contains("sv-restaurant")) throw new IllegalArgumentException("URL has to contain 'sv-restaurant'");
+        if (!url.toString().endsWith(".pdf")) throw new IllegalArgumentException("URL has to link to a PDF document");
+        if (interval <= 0) throw new IllegalArgumentException("Interval has to be positive");
+        this.restaurant = restaurant;
+        this.url = url;
+        this.interval = unit.toMillis(interval);
+    }
+
+    /**
+     * Get the key under which concurrent parses of the source are coalesced
+     *
+     * @return url of the source as string
+     */
+
+    public String getKey() {
+        return this.url.toString();
+    }
+
+    @Override
+    public String toString() {
+        return this.restaurant + " (" + this.url + ")";
+    }
+}
@@ -0,0 +1,24 @@
+package ch.wsb.SVMenuParser.scheduler;
+
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+
+public interface MenuSubscriber {
+    /**
+     * Called after a menu week of a source was parsed
+     *
+     * @param source   source of the menu week
+     * @param menuWeek parsed menu week
+     */
+
+    void onMenuWeek(MenuSource source, MenuWeek menuWeek);
+
+    /**
+     * Called after a parse of a source failed
+     *
+     * @param source    source which failed
+     * @param exception exception thrown while fetching or parsing
+     */
+
+    default void onFailure(MenuSource source, Exception exception) {
+    }
+}
@@ -0,0 +1,107 @@
+package ch.wsb.SVMenuParser.server;
+
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+public class EncodedResponse {
+    @Getter
+    private final byte[] body;
+
+    @Getter
+    private final byte[] gzipBody;
+
+    @Getter
+    private final String etag;
+
+    @Getter
+    private final String gzipEtag;
+
+    /**
+     * Create a new EncodedResponse instance by encoding a json document once
+     *
+     * @param json json document which gets served
+     */
+
+    public EncodedResponse(String json) {
+        this.body = json.getBytes(StandardCharsets.UTF_8);
+        this.gzipBody = gzip(this.body);
+        this.etag = etag(this.body);
+        this.gzipEtag = this.etag.substring(0, this.etag.length() - 1) + "-gz\"";
+    }
+
+    /**
+     * Get the etag of one of the encodings of the response
+     * <p>
+     * Both encodings have their own strong etag since they aren't byte for byte identical
+     *
+     * @param gzip whether the gzip compressed body is served
+     * @return quoted etag
+     */
+
+    public String getEtag(boolean gzip) {
+        return gzip ? this.gzipEtag : this.etag;
+    }
+
+    /**
+     * Check whether the value of an If-None-Match header matches the served encoding of the response
+     *
+     * @param ifNoneMatch header value (null if the header wasn't sent)
+     * @param gzip        whether the gzip compressed body is served
+     * @return whether the client already has the response
+     */
+
+    public boolean matches(String ifNoneMatch, boolean gzip) {
+        if (ifNoneMatch == null) return false;
+        String etag = this.getEtag(gzip);
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) trimmed = trimmed.substring(2);
+            if (trimmed.equals("*") || trimmed.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Internal method to compress a response body
+     *
+     * @param body uncompressed body
+     * @return gzip compressed body
+     */
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream stream = new GZIPOutputStream(output)) {
+            stream.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Internal method to calculate the strong etag of a response body
+     *
+     * @param body uncompressed body
+     * @return quoted etag
+     */
+
+    private static String etag(byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        byte[] hash = digest.digest(body);
+        StringBuilder etag = new StringBuilder("\"");
+        for (int i = 0; i < 16; i++) etag.append(String.format("%02x", hash[i]));
+        return etag.append('"').toString();
+    }
+}
@@ -0,0 +1,379 @@
+package ch.wsb.SVMenuParser.server;
+
+import ch.wsb.SVMenuParser.menu.Menu;
+import ch.wsb.SVMenuParser.menu.MenuLabel;
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+import ch.wsb.SVMenuParser.scheduler.MenuSource;
+import ch.wsb.SVMenuParser.scheduler.MenuSubscriber;
+import ch.wsb.SVMenuParser.store.MenuStore;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class MenuServer implements MenuSubscriber {
+    public static final int DEFAULT_THREADS = 4;
+    public static final int BACKLOG = 1024;
+    public static final int MAX_CACHED_QUERIES = 256;
+    public static final String MENUS_PATH = "/menus/";
+    public static final String RESTAURANTS_PATH = "/restaurants";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, EncodedWeek> weeks = new ConcurrentHashMap<>();
+    private volatile EncodedResponse restaurants;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong encodes = new AtomicLong();
+
+    /**
+     * Create a new MenuServer instance which isn't started yet
+     * <p>
+     * Start the JVM with -Dsun.net.httpserver.nodelay=true to disable nagle, otherwise small responses wait for the
+     * delayed ack of the client
+     *
+     * @param address address to bind to (e.g. localhost with port 0 for a random port)
+     * @param threads amount of threads handling the requests
+     * @throws IOException exception thrown if the address can't be bound
+     */
+
+    public MenuServer(InetSocketAddress address, int threads) throws IOException {
+        this.server = HttpServer.create(address, BACKLOG);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MenuServer-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext(MENUS_PATH, this::handleMenus);
+        this.server.createContext(RESTAURANTS_PATH, this::handleRestaurants);
+        this.restaurants = this.encode(List.of());
+    }
+
+    /**
+     * Start accepting connections
+     */
+
+    public void start() {
+        this.server.start();
+        log.info("Started MenuServer on port {}", this.getPort());
+    }
+
+    /**
+     * Stop the server
+     *
+     * @param delay maximum time in seconds to wait for running exchanges to finish
+     */
+
+    public void stop(int delay) {
+        this.server.stop(delay);
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(delay, TimeUnit.SECONDS)) this.executor.shutdownNow();
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the port the server is bound to
+     *
+     * @return bound port
+     */
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Publish the menu week of a restaurant and encode its full response once
+     *
+     * @param restaurant name of the restaurant
+     * @param menuWeek   menu week to be served
+     */
+
+    public void publish(String restaurant, MenuWeek menuWeek) {
+        EncodedWeek week = new EncodedWeek(menuWeek, this.encode(menuWeek.getMenus()));
+        boolean added = this.weeks.put(restaurant, week) == null;
+        if (added) this.restaurants = this.encode(new TreeSet<>(this.weeks.keySet()));
+        log.debug("Published menu week of {}", restaurant);
+    }
+
+    /**
+     * Stop serving the menus of a restaurant
+     *
+     * @param restaurant name of the restaurant
+     * @return whether menus of the restaurant were served
+     */
+
+    public boolean remove(String restaurant) {
+        if (this.weeks.remove(restaurant) == null) return false;
+        this.restaurants = this.encode(new TreeSet<>(this.weeks.keySet()));
+        return true;
+    }
+
+    @Override
+    public void onMenuWeek(MenuSource source, MenuWeek menuWeek) {
+        this.publish(source.getRestaurant(), menuWeek);
+    }
+
+    /**
+     * Get the amount of handled requests
+     *
+     * @return handled requests
+     */
+
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Get the amount of requests answered with 304 Not Modified
+     *
+     * @return not modified responses
+     */
+
+    public long getNotModified() {
+        return this.notModified.get();
+    }
+
+    /**
+     * Get the amount of json documents encoded since the server was created
+     *
+     * @return encoded responses
+     */
+
+    public long getEncodes() {
+        return this.encodes.get();
+    }
+
+    /**
+     * Internal method to handle the list of restaurants
+     *
+     * @param exchange http exchange
+     * @throws IOException exception thrown if the response can't be written
+     */
+
+    private void handleRestaurants(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!this.checkMethod(exchange)) return;
+            this.send(exchange, this.restaurants);
+        }
+    }
+
+    /**
+     * Internal method to handle the menus of a restaurant filtered by the day, group and label query parameters
+     *
+     * @param exchange http exchange
+     * @throws IOException exception thrown if the response can't be written
+     */
+
+    private void handleMenus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!this.checkMethod(exchange)) return;
+            String restaurant = URLDecoder.decode(exchange.getRequestURI().getRawPath().substring(MENUS_PATH.length()), StandardCharsets.UTF_8);
+            EncodedWeek week = this.weeks.get(restaurant);
+            if (week == null) {
+                this.sendError(exchange, 404, "Unknown restaurant " + restaurant);
+                return;
+            }
+
+            Query query;
+            try {
+                query = Query.parse(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException e) {
+                this.sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            EncodedResponse response = query.isEmpty() ? week.all : week.responses.get(query.toString());
+            if (response == null) {
+                response = this.encode(query.filter(week.menuWeek));
+                if (week.responses.size() < MAX_CACHED_QUERIES) week.responses.putIfAbsent(query.toString(), response);
+            }
+            this.send(exchange, response);
+        }
+    }
+
+    /**
+     * Internal method to reject all requests which don't read
+     *
+     * @param exchange http exchange
+     * @return whether the request method is allowed
+     * @throws IOException exception thrown if the response can't be written
+     */
+
+    private boolean checkMethod(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        String method = exchange.getRequestMethod();
+        if (method.equals("GET") || method.equals("HEAD")) return true;
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        this.sendError(exchange, 405, "Method " + method + " not allowed");
+        return false;
+    }
+
+    /**
+     * Internal method to send a pre-encoded response or a 304 if the client already has it
+     *
+     * @param exchange http exchange
+     * @param response pre-encoded response
+     * @throws IOException exception thrown if the response can't be written
+     */
+
+    private void send(HttpExchange exchange, EncodedResponse response) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", response.getEtag(gzip));
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+
+        if (response.matches(exchange.getRequestHeaders().getFirst("If-None-Match"), gzip)) {
+            this.notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] body = gzip ? response.getGzipBody() : response.getBody();
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        if (gzip) headers.set("Content-Encoding", "gzip");
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(body);
+        }
+    }
+
+    /**
+     * Internal method to send a json error message
+     *
+     * @param exchange http exchange
+     * @param status   http status code
+     * @param message  error message
+     * @throws IOException exception thrown if the response can't be written
+     */
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = MenuStore.GSON.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(body);
+        }
+    }
+
+    /**
+     * Internal method to encode an object into a response
+     *
+     * @param object object to be serialized
+     * @return pre-encoded response
+     */
+
+    private EncodedResponse encode(Object object) {
+        this.encodes.incrementAndGet();
+        return new EncodedResponse(MenuStore.GSON.toJson(object));
+    }
+
+    private static class EncodedWeek {
+        private final MenuWeek menuWeek;
+        private final EncodedResponse all;
+        private final Map<String, EncodedResponse> responses = new ConcurrentHashMap<>();
+
+        /**
+         * Create a new EncodedWeek instance
+         *
+         * @param menuWeek served menu week
+         * @param all      pre-encoded response with all menus of the week
+         */
+
+        private EncodedWeek(MenuWeek menuWeek, EncodedResponse all) {
+            this.menuWeek = menuWeek;
+            this.all = all;
+        }
+    }
+
+    private static class Query {
+        private Integer day;
+        private Integer group;
+        private MenuLabel label;
+
+        /**
+         * Internal method to parse and validate the query of a menus request
+         *
+         * @param rawQuery raw query of the request uri (null if the uri has no query)
+         * @return parsed query
+         * @throws IllegalArgumentException exception thrown if a parameter is unknown or invalid
+         */
+
+        private static Query parse(String rawQuery) throws IllegalArgumentException {
+            Query query = new Query();
+            if (rawQuery == null || rawQuery.isEmpty()) return query;
+            for (String parameter : rawQuery.split("&")) {
+                String[] split = parameter.split("=", 2);
+                String name = URLDecoder.decode(split[0], StandardCharsets.UTF_8);
+                String value = split.length == 2 ? URLDecoder.decode(split[1], StandardCharsets.UTF_8) : "";
+                try {
+                    switch (name) {
+                        case "day" -> query.day = Integer.parseInt(value);
+                        case "group" -> query.group = Integer.parseInt(value);
+                        case "label" -> query.label = MenuLabel.valueOf(value.toUpperCase(Locale.ROOT));
+                        default -> throw new IllegalArgumentException("Unknown query parameter " + name);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Query parameter " + name + " has to be a number");
+                }
+            }
+            if (query.day != null && (query.day < 1 || query.day > 7)) throw new IllegalArgumentException("Day must be a valid day index");
+            return query;
+        }
+
+        /**
+         * Internal method to get the menus of a week matching the query
+         *
+         * @param menuWeek menu week to be filtered
+         * @return matching menus
+         */
+
+        private List<Menu> filter(MenuWeek menuWeek) {
+            List<Menu> menus = this.day != null ? menuWeek.getMenusForDay(this.day) : menuWeek.getMenus();
+            List<Menu> matching = new ArrayList<>();
+            for (Menu menu : menus) {
+                if (this.group != null && menu.getMenuGroup() != this.group) continue;
+                if (this.label != null && menu.getLabel() != this.label) continue;
+                matching.add(menu);
+            }
+            return matching;
+        }
+
+        private boolean isEmpty() {
+            return this.day == null && this.group == null && this.label == null;
+        }
+
+        @Override
+        public String toString() {
+            return this.day + "|" + this.group + "|" + this.label;
+        }
+    }
+}
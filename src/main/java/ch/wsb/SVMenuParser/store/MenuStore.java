@@ -0,0 +1,419 @@
+package ch.wsb.SVMenuParser.store;
+
+import ch.wsb.SVMenuParser.menu.MenuWeek;
+import com.google.gson.*;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class MenuStore implements AutoCloseable {
+    public static final int RECORD_MAGIC = 0x53564D57;
+    public static final int RECORD_HEADER_SIZE = 16;
+    public static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    public static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Date.class, (JsonSerializer<Date>) (date, type, context) -> new JsonPrimitive(date.getTime()))
+            .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, type, context) -> new Date(json.getAsLong()))
+            .create();
+
+    @Getter
+    private final File directory;
+
+    private final MenuStoreIndex index;
+    private final Map<Integer, FileChannel> segments = new HashMap<>();
+    private final TreeMap<Long, Map<Long, MenuStoreIndex.Entry>> weeks = new TreeMap<>();
+    private int activeSegment;
+    private long activeSegmentSize;
+    private long sequence;
+
+    /**
+     * Create a new MenuStore instance
+     * <p>
+     * Menu weeks are appended to segment files in the given directory. Every record is checksummed so
+     * torn writes after a crash are detected and cut off when the store is opened again.
+     *
+     * @param directory directory in which the store files are located
+     * @throws IOException exception thrown when the store files can't be opened
+     */
+
+    public MenuStore(File directory) throws IOException {
+        log.info("Initialized new MenuStore");
+        if (!directory.exists() && !directory.mkdirs()) throw new IOException("Failed to create store directory " + directory);
+        if (!directory.isDirectory()) throw new IOException("Store location " + directory + " is not a directory");
+        this.directory = directory;
+        this.index = new MenuStoreIndex(new File(directory, "index.dat"));
+        try {
+            this.recover();
+        } catch (IOException | RuntimeException e) {
+            //don't leave the index mapped and the segments open if the store can't be used
+            try {
+                this.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        log.debug("Successfully opened menu store with {} menu weeks", this.getSize());
+    }
+
+    /**
+     * Persist a parsed menu week for a restaurant
+     * <p>
+     * An already stored menu week of the same restaurant and week date gets replaced by the new one
+     *
+     * @param restaurant name of the restaurant
+     * @param menuWeek   menu week to be stored
+     * @throws IOException exception thrown when the record can't be written
+     */
+
+    public synchronized void append(String restaurant, MenuWeek menuWeek) throws IOException {
+        long epochDay = toEpochDay(menuWeek.getWeekDate());
+        byte[] payload = GSON.toJson(new StoredWeek(restaurant, epochDay, menuWeek)).getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_SIZE + payload.length;
+
+        if (this.activeSegmentSize > 0 && this.activeSegmentSize + length > MAX_SEGMENT_SIZE) {
+            this.activeSegment++;
+            this.activeSegmentSize = 0;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(payload.length);
+        record.putLong(crc.getValue());
+        record.put(payload);
+        record.flip();
+
+        FileChannel channel = this.getSegment(this.activeSegment);
+        long offset = this.activeSegmentSize;
+        while (record.hasRemaining()) channel.write(record, offset + record.position());
+        channel.force(false);
+        this.activeSegmentSize += length;
+
+        this.addEntry(new MenuStoreIndex.Entry(epochDay, hash(restaurant), this.activeSegment, length, offset, this.sequence++));
+        log.debug("Stored menu week of {} for {}", restaurant, LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * Get the stored menu week of a restaurant
+     *
+     * @param restaurant name of the restaurant
+     * @param weekDate   any date in the first day of the menu week
+     * @return stored menu week (null if none exists)
+     * @throws IOException exception thrown when the record can't be read
+     */
+
+    public synchronized MenuWeek get(String restaurant, Date weekDate) throws IOException {
+        Map<Long, MenuStoreIndex.Entry> restaurants = this.weeks.get(toEpochDay(weekDate));
+        if (restaurants == null) return null;
+        MenuStoreIndex.Entry entry = restaurants.get(hash(restaurant));
+        if (entry == null) return null;
+        StoredWeek stored = this.read(entry);
+        return restaurant.equals(stored.restaurant) ? stored.menuWeek : null;
+    }
+
+    /**
+     * Get all stored menu weeks of a restaurant with a week date in the given range
+     *
+     * @param restaurant name of the restaurant
+     * @param from       first date of the range (inclusive)
+     * @param to         last date of the range (inclusive)
+     * @return list with the menu weeks ordered by their week date
+     * @throws IOException exception thrown when a record can't be read
+     */
+
+    public synchronized List<MenuWeek> getRange(String restaurant, Date from, Date to) throws IOException {
+        long restaurantHash = hash(restaurant);
+        List<MenuWeek> menuWeeks = new ArrayList<>();
+        for (Map<Long, MenuStoreIndex.Entry> restaurants : this.weeks.subMap(toEpochDay(from), true, toEpochDay(to), true).values()) {
+            MenuStoreIndex.Entry entry = restaurants.get(restaurantHash);
+            if (entry == null) continue;
+            StoredWeek stored = this.read(entry);
+            if (restaurant.equals(stored.restaurant)) menuWeeks.add(stored.menuWeek);
+        }
+        return menuWeeks;
+    }
+
+    /**
+     * Get all stored menu weeks of every restaurant with a week date in the given range
+     *
+     * @param from first date of the range (inclusive)
+     * @param to   last date of the range (inclusive)
+     * @return map with the restaurant names and their menu weeks ordered by week date
+     * @throws IOException exception thrown when a record can't be read
+     */
+
+    public synchronized Map<String, List<MenuWeek>> getRange(Date from, Date to) throws IOException {
+        Map<String, List<MenuWeek>> menuWeeks = new TreeMap<>();
+        for (Map<Long, MenuStoreIndex.Entry> restaurants : this.weeks.subMap(toEpochDay(from), true, toEpochDay(to), true).values()) {
+            for (MenuStoreIndex.Entry entry : restaurants.values()) {
+                StoredWeek stored = this.read(entry);
+                menuWeeks.computeIfAbsent(stored.restaurant, key -> new ArrayList<>()).add(stored.menuWeek);
+            }
+        }
+        return menuWeeks;
+    }
+
+    /**
+     * Get the amount of stored menu weeks
+     *
+     * @return amount of distinct restaurant and week date combinations
+     */
+
+    public synchronized int getSize() {
+        int size = 0;
+        for (Map<Long, MenuStoreIndex.Entry> restaurants : this.weeks.values()) size += restaurants.size();
+        return size;
+    }
+
+    /**
+     * Close all store files
+     *
+     * @throws IOException exception thrown when a file close fails
+     */
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : this.segments.values()) channel.close();
+        this.segments.clear();
+        this.index.close();
+    }
+
+    /**
+     * Internal method to load the index and recover records which were written to a segment but not to the index
+     *
+     * @throws IOException exception thrown when a segment can't be read
+     */
+
+    private void recover() throws IOException {
+        List<Integer> segmentNumbers = this.listSegments();
+        Map<Integer, Long> indexedEnds = new HashMap<>();
+        boolean valid = true;
+
+        for (int i = 0; i < this.index.getSize(); i++) {
+            MenuStoreIndex.Entry entry = this.index.get(i);
+            long segmentSize = segmentNumbers.contains(entry.getSegment()) ? this.getSegment(entry.getSegment()).size() : -1;
+            if (entry.getOffset() + entry.getLength() > segmentSize) {
+                valid = false;
+                break;
+            }
+            indexedEnds.merge(entry.getSegment(), entry.getOffset() + entry.getLength(), Math::max);
+            this.putEntry(entry);
+        }
+
+        if (!valid) {
+            log.warn("Menu store index references missing data, rebuilding index from segments");
+            this.index.reset();
+            this.weeks.clear();
+            this.sequence = 0;
+            indexedEnds.clear();
+        }
+
+        for (int segment : segmentNumbers) {
+            FileChannel channel = this.getSegment(segment);
+            long position = indexedEnds.getOrDefault(segment, 0L);
+            while (position < channel.size()) {
+                MenuStoreIndex.Entry entry = this.scanRecord(segment, channel, position);
+                if (entry == null) {
+                    log.warn("Truncated torn record in segment {} at offset {}", segment, position);
+                    channel.truncate(position);
+                    channel.force(true);
+                    break;
+                }
+                this.addEntry(entry);
+                position += entry.getLength();
+            }
+        }
+
+        if (!segmentNumbers.isEmpty()) {
+            this.activeSegment = segmentNumbers.get(segmentNumbers.size() - 1);
+            this.activeSegmentSize = this.getSegment(this.activeSegment).size();
+        }
+    }
+
+    /**
+     * Internal method to read and validate a record while recovering the store
+     *
+     * @param segment  number of the segment
+     * @param channel  channel of the segment
+     * @param position offset of the record in the segment
+     * @return index entry of the record (null if the record is incomplete or corrupt)
+     * @throws IOException exception thrown when the segment can't be read
+     */
+
+    private MenuStoreIndex.Entry scanRecord(int segment, FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        if (readFully(channel, header, position) < RECORD_HEADER_SIZE) return null;
+        header.flip();
+        if (header.getInt() != RECORD_MAGIC) return null;
+        int payloadLength = header.getInt();
+        long checksum = header.getLong();
+        if (payloadLength < 0 || position + RECORD_HEADER_SIZE + payloadLength > channel.size()) return null;
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        readFully(channel, payload, position + RECORD_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        if (crc.getValue() != checksum) return null;
+
+        StoredWeek stored;
+        try {
+            stored = GSON.fromJson(new String(payload.array(), StandardCharsets.UTF_8), StoredWeek.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+        return new MenuStoreIndex.Entry(stored.epochDay, hash(stored.restaurant), segment, RECORD_HEADER_SIZE + payloadLength, position, this.sequence++);
+    }
+
+    /**
+     * Internal method to read a stored record
+     *
+     * @param entry index entry of the record
+     * @return stored record
+     * @throws IOException exception thrown when the record is corrupt or can't be read
+     */
+
+    private StoredWeek read(MenuStoreIndex.Entry entry) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(entry.getLength());
+        if (readFully(this.getSegment(entry.getSegment()), record, entry.getOffset()) < entry.getLength()) {
+            throw new IOException("Record at offset " + entry.getOffset() + " in segment " + entry.getSegment() + " is incomplete");
+        }
+        record.flip();
+        if (record.getInt() != RECORD_MAGIC) throw new IOException("Invalid record at offset " + entry.getOffset());
+        int payloadLength = record.getInt();
+        long checksum = record.getLong();
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_SIZE, payloadLength);
+        if (crc.getValue() != checksum) throw new IOException("Checksum mismatch for record at offset " + entry.getOffset());
+        return GSON.fromJson(new String(record.array(), RECORD_HEADER_SIZE, payloadLength, StandardCharsets.UTF_8), StoredWeek.class);
+    }
+
+    /**
+     * Internal method to append an entry to the index and the in-memory date lookup
+     *
+     * @param entry entry to be added
+     * @throws IOException exception thrown when the index can't be written
+     */
+
+    private void addEntry(MenuStoreIndex.Entry entry) throws IOException {
+        this.index.append(entry);
+        this.putEntry(entry);
+    }
+
+    /**
+     * Internal method to add an entry to the in-memory date lookup
+     *
+     * @param entry entry to be added
+     */
+
+    private void putEntry(MenuStoreIndex.Entry entry) {
+        this.weeks.computeIfAbsent(entry.getEpochDay(), key -> new HashMap<>()).put(entry.getRestaurantHash(), entry);
+        this.sequence = Math.max(this.sequence, entry.getSequence() + 1);
+    }
+
+    /**
+     * Internal method to get the open channel of a segment
+     *
+     * @param segment number of the segment
+     * @return channel of the segment file
+     * @throws IOException exception thrown when the segment can't be opened
+     */
+
+    private FileChannel getSegment(int segment) throws IOException {
+        FileChannel channel = this.segments.get(segment);
+        if (channel == null) {
+            File file = new File(this.directory, String.format("segment-%05d.log", segment));
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.segments.put(segment, channel);
+        }
+        return channel;
+    }
+
+    /**
+     * Internal method to list the numbers of all existing segment files in ascending order
+     *
+     * @return sorted list with segment numbers
+     */
+
+    private List<Integer> listSegments() {
+        List<Integer> segmentNumbers = new ArrayList<>();
+        File[] files = this.directory.listFiles((dir, name) -> name.matches("segment-\\d{5}\\.log"));
+        if (files != null) {
+            for (File file : files) segmentNumbers.add(Integer.parseInt(file.getName().substring(8, 13)));
+        }
+        Collections.sort(segmentNumbers);
+        return segmentNumbers;
+    }
+
+    /**
+     * Internal method to fill a buffer from a channel at the given position
+     *
+     * @param channel  source channel
+     * @param buffer   destination buffer
+     * @param position position in the channel
+     * @return amount of bytes read
+     * @throws IOException exception thrown when the channel can't be read
+     */
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Internal method to convert a date to its epoch day in the system time zone
+     *
+     * @param date date to be converted
+     * @return epoch day of the date
+     */
+
+    private static long toEpochDay(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Internal method to calculate a 64-bit FNV-1a hash of a restaurant name
+     *
+     * @param restaurant name of the restaurant
+     * @return hash of the restaurant name
+     */
+
+    private static long hash(String restaurant) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : restaurant.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static class StoredWeek {
+        private final String restaurant;
+        private final long epochDay;
+        private final MenuWeek menuWeek;
+
+        private StoredWeek(String restaurant, long epochDay, MenuWeek menuWeek) {
+            this.restaurant = restaurant;
+            this.epochDay = epochDay;
+            this.menuWeek = menuWeek;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package ch.wsb.SVMenuParser.store;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+@Slf4j
+public class MenuStoreIndex implements AutoCloseable {
+    public static final int MAGIC = 0x53564D49;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int ENTRY_SIZE = 40;
+    public static final int GROWTH_ENTRIES = 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    @Getter
+    private int size;
+
+    /**
+     * Create a new MenuStoreIndex instance
+     * <p>
+     * The index file has a fixed header (magic, version, committed entry count) followed by
+     * fixed size entries. An entry only counts as written once the entry count in the header was updated.
+     *
+     * @param indexFile file of the memory-mapped index
+     * @throws IOException exception thrown when the index file can't be opened or mapped
+     */
+
+    public MenuStoreIndex(File indexFile) throws IOException {
+        boolean exists = indexFile.exists() && indexFile.length() >= HEADER_SIZE;
+        this.file = new RandomAccessFile(indexFile, "rw");
+        this.channel = this.file.getChannel();
+        try {
+            this.map(Math.max(this.channel.size(), HEADER_SIZE + (long) ENTRY_SIZE * GROWTH_ENTRIES));
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+
+        if (exists && this.buffer.getInt(0) == MAGIC && this.buffer.getInt(4) == VERSION) {
+            long committed = this.buffer.getLong(8);
+            long capacity = (this.buffer.capacity() - HEADER_SIZE) / ENTRY_SIZE;
+            if (committed < 0 || committed > capacity) {
+                log.warn("Index entry count {} is out of bounds, resetting index", committed);
+                this.reset();
+            } else this.size = (int) committed;
+        } else {
+            if (exists) log.warn("Found invalid index header, resetting index");
+            this.reset();
+        }
+    }
+
+    /**
+     * Append a new entry to the index and commit it
+     *
+     * @param entry entry to be appended
+     */
+
+    public void append(Entry entry) throws IOException {
+        long position = HEADER_SIZE + (long) ENTRY_SIZE * this.size;
+        if (position + ENTRY_SIZE > this.buffer.capacity()) {
+            this.map(this.buffer.capacity() + (long) ENTRY_SIZE * GROWTH_ENTRIES);
+        }
+        int offset = (int) position;
+        this.buffer.putLong(offset, entry.getEpochDay());
+        this.buffer.putLong(offset + 8, entry.getRestaurantHash());
+        this.buffer.putInt(offset + 16, entry.getSegment());
+        this.buffer.putInt(offset + 20, entry.getLength());
+        this.buffer.putLong(offset + 24, entry.getOffset());
+        this.buffer.putLong(offset + 32, entry.getSequence());
+        //entry bytes have to be on disk before the entry count makes them visible
+        this.buffer.force();
+        this.size++;
+        this.buffer.putLong(8, this.size);
+        this.buffer.force();
+    }
+
+    /**
+     * Get an entry of the index
+     *
+     * @param index position of the entry
+     * @return entry at the given position
+     */
+
+    public Entry get(int index) {
+        if (index < 0 || index >= this.size) throw new IndexOutOfBoundsException("Index entry " + index + " doesn't exist");
+        int offset = HEADER_SIZE + ENTRY_SIZE * index;
+        return new Entry(
+                this.buffer.getLong(offset),
+                this.buffer.getLong(offset + 8),
+                this.buffer.getInt(offset + 16),
+                this.buffer.getInt(offset + 20),
+                this.buffer.getLong(offset + 24),
+                this.buffer.getLong(offset + 32)
+        );
+    }
+
+    /**
+     * Remove all entries from the index
+     */
+
+    public void reset() {
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, VERSION);
+        this.buffer.putLong(8, 0);
+        this.buffer.force();
+        this.size = 0;
+    }
+
+    /**
+     * Close the index file
+     *
+     * @throws IOException exception thrown when the file close fails
+     */
+
+    @Override
+    public void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+        this.file.close();
+    }
+
+    /**
+     * Internal method to (re)map the index file with a given size
+     *
+     * @param length size of the mapped region in bytes
+     * @throws IOException exception thrown when the mapping fails
+     */
+
+    private void map(long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Menu store index exceeds the maximum size");
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+    }
+
+    public static class Entry {
+        @Getter
+        private final long epochDay;
+
+        @Getter
+        private final long restaurantHash;
+
+        @Getter
+        private final int segment;
+
+        @Getter
+        private final int length;
+
+        @Getter
+        private final long offset;
+
+        @Getter
+        private final long sequence;
+
+        /**
+         * Create a new index Entry instance
+         *
+         * @param epochDay       epoch day of the menu week date
+         * @param restaurantHash hash of the restaurant name
+         * @param segment        number of the segment containing the record
+         * @param length         length of the record in bytes
+         * @param offset         offset of the record in the segment
+         * @param sequence       sequence number of the record
+         */
+
+        public Entry(long epochDay, long restaurantHash, int segment, int length, long offset, long sequence) {
+            this.epochDay = epochDay;
+            this.restaurantHash = restaurantHash;
+            this.segment = segment;
+            this.length = length;
+            this.offset = offset;
+            this.sequence = sequence;
+        }
+    }
+}